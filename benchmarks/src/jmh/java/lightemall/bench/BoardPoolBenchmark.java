@@ -0,0 +1,60 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Generating a puzzle pack of PACK scrambled boards, one after another and on
+ * every core with a BoardPool
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoardPoolBenchmark {
+  static final int PACK = 64;
+
+  @Param({ "20", "100" })
+  int size;
+
+  @Param({ "false", "true" })
+  boolean hex;
+
+  Object pool;
+  int[] seeds = new int[PACK];
+
+  @Setup
+  public void setUp() throws Throwable {
+    pool = Game.NEW_BOARD_POOL.invoke(1);
+    for (int i = 0; i < PACK; i++) {
+      seeds[i] = i + 1;
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws Throwable {
+    Game.POOL_SHUTDOWN.invoke(pool);
+  }
+
+  @Benchmark
+  public Object generateOneByOne() throws Throwable {
+    Object last = null;
+    for (int seed : seeds) {
+      last = Game.NEW_READY_BOARD.invoke(hex, seed, size, size);
+    }
+    return last;
+  }
+
+  @Benchmark
+  public Object generatePack() throws Throwable {
+    return Game.POOL_GENERATE.invoke(pool, hex, size, size, seeds);
+  }
+}
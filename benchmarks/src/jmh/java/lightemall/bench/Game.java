@@ -0,0 +1,251 @@
+package lightemall.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import javalib.worldimages.Posn;
+
+/**
+ * The game lives in the unnamed package, which JMH can't generate benchmarks
+ * for and a named package can't import, so the benchmarks reach the
+ * LightEmAll World through method handles resolved once here
+ */
+final class Game {
+  static final Class<?> WORLD = load("LightEmAll");
+  static final Class<?> HEX_GAME_PIECE = load("LightEmAll$HexGamePiece");
+  static final Class<?> HEX_GRID = load("HexGrid");
+  static final Class<?> ENGINE = load("LightEmAllEngine");
+  static final Class<?> SOLVER = load("Solver");
+  static final Class<?> READY_BOARD = load("ReadyBoard");
+  static final Class<?> BOARD_POOL = load("BoardPool");
+  static final Class<?> PUZZLE_PACK = load("PuzzlePack");
+  static final Class<?> MOVE_LOG = load("MoveLog");
+  static final Class<?> REPLAY = load("Replay");
+
+  private static final MethodHandles.Lookup LOOKUP = lookup();
+
+  // LightEmAll(int height, int width, int tileSize, int wireWidth)
+  static final MethodHandle NEW_WORLD = constructor(WORLD, int.class, int.class, int.class,
+      int.class);
+
+  static final MethodHandle INIT_BOARD = method("initBoard", void.class);
+  static final MethodHandle RANDOMIZE = method("randomnizeTileRotation", void.class);
+  static final MethodHandle POWER_UPDATE = method("powerUpdate", void.class);
+  static final MethodHandle UPDATE_POWER_STATUS = method("updatePowerStatus", void.class);
+  static final MethodHandle REFRESH_PAGE = method("refrashPage", void.class);
+  static final MethodHandle DRAW_BOARD = method("drawBoard", void.class);
+  static final MethodHandle ROTATE_GAME_PIECE = method("rotateGamePiece", void.class,
+      Posn.class);
+  static final MethodHandle MOVE_POWER_STATION = method("movePowerStation", void.class,
+      int.class);
+  static final MethodHandle MOVE_HEX_POWER_STATION = method("moveHexPowerStation", void.class,
+      int.class);
+  static final MethodHandle INIT_HEX_BOARD = method("initHexBoard", void.class);
+  static final MethodHandle HEX_POWER_UPDATE = method("hexPowerUpdate", void.class);
+  static final MethodHandle UPDATE_HEX_POWER_STATUS = method("updateHexPowerStatus",
+      void.class);
+  static final MethodHandle ROTATE_HEX_GAME_PIECE_AT = method("rotateHexGamePiece", void.class,
+      Posn.class);
+  static final MethodHandle NEW_HEX_GRID = constructor(HEX_GRID, int.class);
+  static final MethodHandle HEX_TILE_AT = find(HEX_GRID, "tileAt", int.class, double.class,
+      double.class, double.class);
+  static final MethodHandle HEX_CENTER_X = find(HEX_GRID, "centerX", double.class, int.class,
+      double.class);
+  static final MethodHandle HEX_CENTER_Y = find(HEX_GRID, "centerY", double.class, int.class,
+      double.class);
+  static final MethodHandle ROTATE_HEX_GAME_PIECE = find(HEX_GAME_PIECE, "rotateHexGamePiece",
+      void.class);
+
+  static final MethodHandle NEW_ENGINE = constructor(ENGINE);
+  static final MethodHandle ENGINE_NEW_GAME = find(ENGINE, "newGame", void.class, int.class,
+      int.class, int.class);
+  static final MethodHandle ENGINE_SOLVE = find(ENGINE, "solve", SOLVER);
+  static final MethodHandle ENGINE_GENERATE = find(ENGINE, "generate", void.class, int.class,
+      int.class, int.class);
+  static final MethodHandle ENGINE_TURN = find(ENGINE, "turn", void.class, int.class);
+  static final MethodHandle ENGINE_MOVE_POWER = find(ENGINE, "movePower", boolean.class,
+      int.class);
+  static final MethodHandle MAKE_TREE = findStatic(ENGINE, "makeTree", int.class, int.class,
+      int.class, int.class, int[].class, int[].class, int[].class, long[].class);
+
+  static final MethodHandle NEW_READY_BOARD = constructor(READY_BOARD, boolean.class, int.class,
+      int.class, int.class);
+  static final MethodHandle NEW_BOARD_POOL = constructor(BOARD_POOL, int.class);
+  static final MethodHandle POOL_GENERATE = find(BOARD_POOL, "generate", ArrayList.class,
+      boolean.class, int.class, int.class, int[].class);
+  static final MethodHandle POOL_SHUTDOWN = find(BOARD_POOL, "shutdown", void.class);
+  static final MethodHandle NEW_PUZZLE_PACK = constructor(PUZZLE_PACK, Path.class);
+  static final MethodHandle PACK_WRITE = findStatic(PUZZLE_PACK, "write", void.class, Path.class,
+      ArrayList.class);
+  static final MethodHandle PACK_APPEND = findStatic(PUZZLE_PACK, "append", void.class,
+      Path.class, ArrayList.class);
+  static final MethodHandle PACK_BOARD = find(PUZZLE_PACK, "board", READY_BOARD, int.class);
+  static final MethodHandle NEW_MOVE_LOG = constructor(MOVE_LOG, boolean.class, int.class,
+      int.class, int.class);
+  static final MethodHandle LOG_ROTATE = find(MOVE_LOG, "rotate", void.class, int.class);
+  static final MethodHandle LOG_MOVE_POWER = find(MOVE_LOG, "movePower", void.class, int.class);
+  static final MethodHandle NEW_REPLAY = constructor(REPLAY, MOVE_LOG);
+  static final MethodHandle REPLAY_RESTART = find(REPLAY, "restart", void.class);
+  static final MethodHandle REPLAY_STEP = find(REPLAY, "step", boolean.class);
+  static final MethodHandle REPLAY_FAST_FORWARD = find(REPLAY, "fastForward", void.class,
+      int.class);
+
+  static final MethodHandle USE_VIEWPORT = method("useViewport", void.class, int.class,
+      int.class);
+  static final MethodHandle SCROLL_VIEW = method("scrollView", void.class, int.class, int.class);
+  static final MethodHandle ZOOM_VIEW = method("zoomView", void.class, boolean.class);
+
+  static final MethodHandle SET_RANDOM_SEED = setter("randomSeed", int.class);
+  static final MethodHandle SET_RASTER_BACKEND = setter("rasterBackend", boolean.class);
+  static final MethodHandle GET_ENGINE = getter("engine", ENGINE);
+  static final MethodHandle GET_HEX_NODES = getter("hexNodes", ArrayList.class);
+  static final MethodHandle GET_HEX_GRID = getter("hexGrid", HEX_GRID);
+  static final MethodHandle GET_HEX_SIZE = getter("hexSize", int.class);
+
+  static final int TILE_SIZE = 20;
+  static final int WIRE_WIDTH = 4;
+
+  private Game() {
+  }
+
+  /**
+   * Make a size by size World for the seed, with its board generated
+   * 
+   * @param size The width and height of the board
+   * @param seed The random seed
+   * @return A LightEmAll
+   */
+  static Object newBoard(int size, int seed) throws Throwable {
+    Object world = newWorld(size, seed);
+    INIT_BOARD.invoke(world);
+    return world;
+  }
+
+  /**
+   * Make a size by size World for the seed, with nothing generated yet
+   * 
+   * @param size The width and height of the board, or the rings of a hex board
+   * @param seed The random seed
+   * @return A LightEmAll
+   */
+  static Object newWorld(int size, int seed) throws Throwable {
+    Object world = NEW_WORLD.invoke(size, size, TILE_SIZE, WIRE_WIDTH);
+    SET_RANDOM_SEED.invoke(world, seed);
+    return world;
+  }
+
+  /**
+   * Make a size by size World in play: generated, scrambled and powered, the
+   * way initGame() and the first tick leave it
+   * 
+   * @param size The width and height of the board
+   * @param seed The random seed
+   * @return A LightEmAll
+   */
+  static Object newGame(int size, int seed) throws Throwable {
+    Object world = newBoard(size, seed);
+    RANDOMIZE.invoke(world);
+    POWER_UPDATE.invoke(world);
+    return world;
+  }
+
+  /**
+   * The position of a click in the middle of the given tile
+   * 
+   * @param row The row of the tile
+   * @param col The col of the tile
+   * @return A Posn
+   */
+  static Posn clickOn(int row, int col) {
+    return new Posn(col * TILE_SIZE + TILE_SIZE / 2, row * TILE_SIZE + TILE_SIZE / 2);
+  }
+
+  /**
+   * The position of a click in the middle of the given tile of a hex board,
+   * which is centered on the scene
+   * 
+   * @param world A LightEmAll with its hex board generated
+   * @param rings The number of rings of the board
+   * @param index Index of a tile
+   * @return A Posn
+   */
+  static Posn clickOnHex(Object world, int rings, int index) throws Throwable {
+    Object grid = GET_HEX_GRID.invoke(world);
+    double size = (int) GET_HEX_SIZE.invoke(world);
+    double x = (double) HEX_CENTER_X.invoke(grid, index, size);
+    double y = (double) HEX_CENTER_Y.invoke(grid, index, size);
+    return new Posn((int) (rings * TILE_SIZE / 2.0 + x), (int) (rings * TILE_SIZE / 2.0 + y));
+  }
+
+  private static Class<?> load(String name) {
+    try {
+      return Class.forName(name);
+    }
+    catch (ClassNotFoundException e) {
+      throw new IllegalStateException("The game is not on the classpath", e);
+    }
+  }
+
+  private static MethodHandles.Lookup lookup() {
+    try {
+      return MethodHandles.privateLookupIn(WORLD, MethodHandles.lookup());
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+    try {
+      return LOOKUP.findConstructor(owner, MethodType.methodType(void.class, parameters));
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle method(String name, Class<?> result, Class<?>... parameters) {
+    return find(WORLD, name, result, parameters);
+  }
+
+  private static MethodHandle find(Class<?> owner, String name, Class<?> result,
+      Class<?>... parameters) {
+    try {
+      return LOOKUP.findVirtual(owner, name, MethodType.methodType(result, parameters));
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle findStatic(Class<?> owner, String name, Class<?> result,
+      Class<?>... parameters) {
+    try {
+      return LOOKUP.findStatic(owner, name, MethodType.methodType(result, parameters));
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle setter(String name, Class<?> type) {
+    try {
+      return LOOKUP.findSetter(WORLD, name, type);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle getter(String name, Class<?> type) {
+    try {
+      return LOOKUP.findGetter(WORLD, name, type);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Generating a square board: the minimum spanning tree alone, the board of the
+ * engine with its wiring and radius, and the whole board of the World
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GenerationBenchmark {
+  @Param({ "5", "20", "100", "200", "500" })
+  int size;
+
+  Object world;
+  Object engine;
+  int[] from;
+  int[] to;
+  int[] weight;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newBoard(size, 42);
+    engine = Game.NEW_ENGINE.invoke();
+    from = new int[size * size];
+    to = new int[size * size];
+    weight = new int[size * size];
+  }
+
+  @Benchmark
+  public int makeTree() throws Throwable {
+    return (int) Game.MAKE_TREE.invoke(size, size, 42, from, to, weight, new long[1]);
+  }
+
+  @Benchmark
+  public Object generate() throws Throwable {
+    Game.ENGINE_GENERATE.invoke(engine, 42, size, size);
+    return engine;
+  }
+
+  @Benchmark
+  public Object initBoard() throws Throwable {
+    Game.INIT_BOARD.invoke(world);
+    return world;
+  }
+}
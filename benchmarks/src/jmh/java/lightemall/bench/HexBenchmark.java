@@ -0,0 +1,89 @@
+package lightemall.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javalib.worldimages.Posn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The hexagon board, sized by its number of rings: generating it, turning
+ * every tile once, moving the power station 100k times in random directions,
+ * clicking 100k random tiles with the power updated after each, and
+ * recomputing the power from scratch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HexBenchmark {
+  @Param({ "5", "20", "100", "200", "500" })
+  int rings;
+
+  Object world;
+  int[] directions = new int[StationBenchmark.MOVES];
+  Posn[] clicks = new Posn[StationBenchmark.MOVES];
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newWorld(rings, 42);
+    Game.INIT_HEX_BOARD.invoke(world);
+    Random random = new Random(1);
+    for (int i = 0; i < directions.length; i++) {
+      directions[i] = random.nextInt(6);
+    }
+    int tiles = ((ArrayList<?>) Game.GET_HEX_NODES.invoke(world)).size();
+    for (int i = 0; i < clicks.length; i++) {
+      clicks[i] = Game.clickOnHex(world, rings, random.nextInt(tiles));
+    }
+    Game.HEX_POWER_UPDATE.invoke(world);
+  }
+
+  @Benchmark
+  public Object initHexBoard() throws Throwable {
+    Game.INIT_HEX_BOARD.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object rotateEveryHexGamePiece() throws Throwable {
+    ArrayList<?> hexNodes = (ArrayList<?>) Game.GET_HEX_NODES.invoke(world);
+    for (Object hex : hexNodes) {
+      Game.ROTATE_HEX_GAME_PIECE.invoke(hex);
+    }
+    return world;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(StationBenchmark.MOVES)
+  public Object moveHexPowerStation() throws Throwable {
+    for (int i = 0; i < directions.length; i++) {
+      Game.MOVE_HEX_POWER_STATION.invoke(world, directions[i]);
+    }
+    return world;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(StationBenchmark.MOVES)
+  public Object rotateHexGamePiece() throws Throwable {
+    for (int i = 0; i < clicks.length; i++) {
+      Game.ROTATE_HEX_GAME_PIECE_AT.invoke(world, clicks[i]);
+    }
+    return world;
+  }
+
+  @Benchmark
+  public Object updateHexPowerStatus() throws Throwable {
+    Game.UPDATE_HEX_POWER_STATUS.invoke(world);
+    return world;
+  }
+}
@@ -0,0 +1,60 @@
+package lightemall.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javalib.worldimages.Posn;
+
+/**
+ * Finding the tile under a click, over clicks spread across the whole board,
+ * on a square board in play and on a hexagon board with as many rings
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HitTestBenchmark {
+  @Param({ "20", "200" })
+  int size;
+
+  Object world;
+  Object hexGrid;
+  Posn[] clicks = new Posn[1024];
+  double[] hexX = new double[1024];
+  double[] hexY = new double[1024];
+  int next;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(size, 42);
+    hexGrid = Game.NEW_HEX_GRID.invoke(size);
+    Random random = new Random(1);
+    int extent = size * Game.TILE_SIZE;
+    for (int i = 0; i < clicks.length; i++) {
+      clicks[i] = new Posn(random.nextInt(extent), random.nextInt(extent));
+      hexX[i] = (random.nextDouble() - 0.5) * 3 * extent;
+      hexY[i] = (random.nextDouble() - 0.5) * 3 * extent;
+    }
+  }
+
+  @Benchmark
+  public Object rotateGamePiece() throws Throwable {
+    next = (next + 1) & (clicks.length - 1);
+    Game.ROTATE_GAME_PIECE.invoke(world, clicks[next]);
+    return world;
+  }
+
+  @Benchmark
+  public int hexTileAt() throws Throwable {
+    next = (next + 1) & (clicks.length - 1);
+    return (int) Game.HEX_TILE_AT.invoke(hexGrid, hexX[next], hexY[next], (double) Game.TILE_SIZE);
+  }
+}
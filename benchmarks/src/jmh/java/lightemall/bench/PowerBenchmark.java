@@ -0,0 +1,45 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Updating the power of a scrambled square board in play: from scratch, and
+ * after the engine turns the far corner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PowerBenchmark {
+  @Param({ "5", "20", "100", "200", "500" })
+  int size;
+
+  Object world;
+  Object engine;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(size, 42);
+    engine = Game.GET_ENGINE.invoke(world);
+  }
+
+  @Benchmark
+  public Object updatePowerStatus() throws Throwable {
+    Game.UPDATE_POWER_STATUS.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object turnFarCorner() throws Throwable {
+    Game.ENGINE_TURN.invoke(engine, size * size - 1);
+    return engine;
+  }
+}
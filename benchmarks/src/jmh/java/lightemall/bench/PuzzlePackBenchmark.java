@@ -0,0 +1,84 @@
+package lightemall.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Starting a board of a puzzle pack of PACK boards: mapping the pack, reading
+ * the Nth board out of it, and generating the same board from its seed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PuzzlePackBenchmark {
+  static final int PACK = 1024;
+  static final int BATCH = 64;
+
+  @Param({ "20", "100" })
+  int size;
+
+  @Param({ "false", "true" })
+  boolean hex;
+
+  Path file;
+  Object pack;
+  int next = 0;
+
+  @Setup
+  public void setUp() throws Throwable {
+    // Written a batch at a time, PACK large boards don't fit in the heap at once
+    Object pool = Game.NEW_BOARD_POOL.invoke(1);
+    file = Files.createTempFile("lightemall", ".pack");
+    int[] seeds = new int[BATCH];
+    for (int start = 0; start < PACK; start += BATCH) {
+      for (int i = 0; i < BATCH; i++) {
+        seeds[i] = start + i + 1;
+      }
+      ArrayList<?> boards = (ArrayList<?>) Game.POOL_GENERATE.invoke(pool, hex, size, size,
+          seeds);
+      if (start == 0) {
+        Game.PACK_WRITE.invoke(file, boards);
+      }
+      else {
+        Game.PACK_APPEND.invoke(file, boards);
+      }
+    }
+    Game.POOL_SHUTDOWN.invoke(pool);
+    pack = Game.NEW_PUZZLE_PACK.invoke(file);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    pack = null;
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public Object openPack() throws Throwable {
+    return Game.NEW_PUZZLE_PACK.invoke(file);
+  }
+
+  @Benchmark
+  public Object readNth() throws Throwable {
+    next = (next + 389) % PACK;
+    return Game.PACK_BOARD.invoke(pack, next);
+  }
+
+  @Benchmark
+  public Object generateFromSeed() throws Throwable {
+    next = (next + 389) % PACK;
+    return Game.NEW_READY_BOARD.invoke(hex, next + 1, size, size);
+  }
+}
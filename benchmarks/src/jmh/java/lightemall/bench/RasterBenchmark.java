@@ -0,0 +1,56 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javalib.worldimages.Posn;
+
+/**
+ * Drawing a square board with each backend: an image placed per tile
+ * (raster false) or every tile copied into one image (raster true), from an
+ * empty scene and after a click. The images placed per tile are only
+ * rasterized when javalib draws the scene, which isn't measured here
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RasterBenchmark {
+  @Param({ "20", "100" })
+  int size;
+
+  @Param({ "false", "true" })
+  boolean raster;
+
+  Object world;
+  Posn click;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(size, 42);
+    Game.SET_RASTER_BACKEND.invoke(world, raster);
+    click = Game.clickOn(size / 2, size / 2);
+    Game.DRAW_BOARD.invoke(world);
+  }
+
+  @Benchmark
+  public Object drawBoard() throws Throwable {
+    Game.REFRESH_PAGE.invoke(world);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object drawBoardAfterClick() throws Throwable {
+    Game.ROTATE_GAME_PIECE.invoke(world, click);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+}
@@ -0,0 +1,57 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javalib.worldimages.Posn;
+
+/**
+ * Drawing a square board in play, from an empty scene and after a click, and
+ * the click itself. Four clicks turn a tile back, so the board stays the same
+ * between iterations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+  @Param({ "5", "20", "100", "200", "500" })
+  int size;
+
+  Object world;
+  Posn click;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(size, 42);
+    click = Game.clickOn(size / 2, size / 2);
+    Game.DRAW_BOARD.invoke(world);
+  }
+
+  @Benchmark
+  public Object drawBoard() throws Throwable {
+    Game.REFRESH_PAGE.invoke(world);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object drawBoardAfterClick() throws Throwable {
+    Game.ROTATE_GAME_PIECE.invoke(world, click);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object rotateGamePiece() throws Throwable {
+    Game.ROTATE_GAME_PIECE.invoke(world, click);
+    return world;
+  }
+}
@@ -0,0 +1,74 @@
+package lightemall.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Playing a MoveLog of MOVES random clicks and power station keys again,
+ * in moves per second: fast forward to the end without the power, and step
+ * by step with the power updated after every move
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReplayBenchmark {
+  static final int MOVES = 1_000_000;
+
+  @Param({ "20", "100" })
+  int size;
+
+  @Param({ "false", "true" })
+  boolean hex;
+
+  Object replay;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    int tiles = size * size;
+    int sides = 4;
+    if (hex) {
+      tiles = 3 * size * (size - 1) + 1;
+      sides = 6;
+    }
+    Object log = Game.NEW_MOVE_LOG.invoke(hex, 3, size, size);
+    Random random = new Random(1);
+    for (int i = 0; i < MOVES; i++) {
+      if (random.nextInt(8) == 0) {
+        Game.LOG_MOVE_POWER.invoke(log, random.nextInt(sides));
+      }
+      else {
+        Game.LOG_ROTATE.invoke(log, random.nextInt(tiles));
+      }
+    }
+    replay = Game.NEW_REPLAY.invoke(log);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MOVES)
+  public Object fastForward() throws Throwable {
+    Game.REPLAY_FAST_FORWARD.invoke(replay, 0);
+    Game.REPLAY_FAST_FORWARD.invoke(replay, MOVES);
+    return replay;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MOVES)
+  public Object step() throws Throwable {
+    Game.REPLAY_RESTART.invoke(replay);
+    while ((boolean) Game.REPLAY_STEP.invoke(replay)) {
+      continue;
+    }
+    return replay;
+  }
+}
@@ -0,0 +1,45 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Solving scrambled square boards, in boards per second. Each call solves the
+ * next of BOARDS boards made from different seeds, so one easy or hard seed
+ * doesn't decide the score
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SolverBenchmark {
+  static final int BOARDS = 16;
+
+  @Param({ "5", "20", "50", "100" })
+  int size;
+
+  Object[] engines = new Object[BOARDS];
+  int next = 0;
+
+  @Setup
+  public void setUp() throws Throwable {
+    for (int i = 0; i < BOARDS; i++) {
+      engines[i] = Game.NEW_ENGINE.invoke();
+      Game.ENGINE_NEW_GAME.invoke(engines[i], i, size, size);
+    }
+  }
+
+  @Benchmark
+  public Object solve() throws Throwable {
+    Object engine = engines[next];
+    next = (next + 1) % BOARDS;
+    return Game.ENGINE_SOLVE.invoke(engine);
+  }
+}
@@ -0,0 +1,61 @@
+package lightemall.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Moving the power station 100k times in random directions, on a board in
+ * play: by the engine alone, and the way a key press does it with the tiles
+ * that changed marked to be drawn. See HexBenchmark for the hexagon board
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StationBenchmark {
+  static final int MOVES = 100000;
+
+  @Param({ "20", "200" })
+  int size;
+
+  Object world;
+  Object engine;
+  int[] directions = new int[MOVES];
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(size, 42);
+    engine = Game.GET_ENGINE.invoke(world);
+    Random random = new Random(1);
+    for (int i = 0; i < MOVES; i++) {
+      directions[i] = random.nextInt(4);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MOVES)
+  public Object movePower() throws Throwable {
+    for (int i = 0; i < MOVES; i++) {
+      Game.ENGINE_MOVE_POWER.invoke(engine, directions[i]);
+    }
+    return engine;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MOVES)
+  public Object movePowerStation() throws Throwable {
+    for (int i = 0; i < MOVES; i++) {
+      Game.MOVE_POWER_STATION.invoke(world, directions[i]);
+    }
+    return world;
+  }
+}
@@ -0,0 +1,53 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javalib.worldimages.Posn;
+
+/**
+ * Drawing a square board through a 1200 x 800 viewport, after a scroll of one
+ * tile, which places every tile in view again, and after a click. Both should
+ * cost the same on any size of board
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewportBenchmark {
+  @Param({ "20", "100", "500", "1000" })
+  int size;
+
+  Object world;
+  Posn click = Game.clickOn(2, 2);
+  int scroll = 1;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(size, 42);
+    Game.USE_VIEWPORT.invoke(world, 1200, 800);
+    Game.DRAW_BOARD.invoke(world);
+  }
+
+  @Benchmark
+  public Object drawAfterScroll() throws Throwable {
+    scroll = -scroll;
+    Game.SCROLL_VIEW.invoke(world, scroll, scroll);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object drawAfterClick() throws Throwable {
+    Game.ROTATE_GAME_PIECE.invoke(world, click);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+}
@@ -0,0 +1,57 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javalib.worldimages.Posn;
+
+/**
+ * Drawing a 1000 x 1000 board through a 1200 x 800 viewport at each zoom, from
+ * tiles of 1 pixel drawn as blocks to the full tiles of Game.TILE_SIZE drawn
+ * as sprites, after a scroll and after a click. Frames should cost about the
+ * same at every zoom: 20, 10, 5, 2 and 1 pixels
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ZoomBenchmark {
+  @Param({ "0", "1", "2", "3", "4" })
+  int zoomOuts;
+
+  Object world;
+  Posn click = new Posn(1, 1);
+  int scroll = 1;
+
+  @Setup
+  public void setUp() throws Throwable {
+    world = Game.newGame(1000, 42);
+    Game.USE_VIEWPORT.invoke(world, 1200, 800);
+    for (int i = 0; i < zoomOuts; i++) {
+      Game.ZOOM_VIEW.invoke(world, false);
+    }
+    Game.DRAW_BOARD.invoke(world);
+  }
+
+  @Benchmark
+  public Object drawAfterScroll() throws Throwable {
+    scroll = -scroll;
+    Game.SCROLL_VIEW.invoke(world, scroll, scroll);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+
+  @Benchmark
+  public Object drawAfterClick() throws Throwable {
+    Game.ROTATE_GAME_PIECE.invoke(world, click);
+    Game.DRAW_BOARD.invoke(world);
+    return world;
+  }
+}
@@ -0,0 +1,255 @@
+/**
+ * Represent the wiring and power of a board packed into primitive arrays,
+ * indexed by row * width + col. A square tile keeps its wires in the low 4
+ * bits of a byte (top, right, bottom, left), a hexagon tile in the low 6 bits
+ * (north, northeast, southeast, south, southwest, northwest), so a direction d
+ * is the bit (1 << d). A square board finds neighbors from width and height,
+ * a hexagon board from the neighbor table of its HexGrid. Tiles whose wiring
+ * or power changed are recorded until clearChanged(), so a renderer can redraw
+ * only those
+ */
+class BitBoard {
+  static final int TOP = 1;
+  static final int RIGHT = 2;
+  static final int BOTTOM = 4;
+  static final int LEFT = 8;
+
+  static final int NORTH = 1;
+  static final int NORTHEAST = 2;
+  static final int SOUTHEAST = 4;
+  static final int SOUTH = 8;
+  static final int SOUTHWEST = 16;
+  static final int NORTHWEST = 32;
+
+  int width;
+  int height;
+  int directions = 4; // The number of sides of a tile
+  int[] neighbors; // index * 6 + direction -> neighbor on a hexagon board, else null
+  byte[] wiring; // index -> connectivity mask
+  byte[] levels; // index -> power level, 0 = not powered
+
+  boolean[] changed; // index -> if it changed since clearChanged()
+  int[] changedTiles; // the indices that changed, in order
+  int changedCount = 0;
+
+  /**
+   * The constructor, every tile starts without wires and unpowered
+   * 
+   * @param width  The width of the board
+   * @param height The height of the board
+   */
+  BitBoard(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.wiring = new byte[width * height];
+    this.levels = new byte[width * height];
+    this.changed = new boolean[width * height];
+    this.changedTiles = new int[width * height];
+  }
+
+  /**
+   * The constructor of a hexagon board, its tiles in one row in the order of
+   * the grid's indices
+   * 
+   * @param grid The layout of the board
+   */
+  BitBoard(HexGrid grid) {
+    this(grid.size(), 1);
+    this.directions = 6;
+    this.neighbors = grid.neighbors;
+  }
+
+  /**
+   * Get the number of tiles
+   * 
+   * @return An int
+   */
+  int size() {
+    return wiring.length;
+  }
+
+  /**
+   * Rotate a square mask by a quarter turn, true = clockwise
+   * 
+   * @param mask      A 4 bit mask
+   * @param clockwise A boolean
+   * @return The rotated mask
+   */
+  static int rotateSquare(int mask, boolean clockwise) {
+    if (clockwise) {
+      return ((mask << 1) | (mask >>> 3)) & 0xF;
+    }
+    return ((mask >>> 1) | (mask << 3)) & 0xF;
+  }
+
+  /**
+   * Rotate a hexagon mask by a sixth of a turn, true = clockwise
+   * 
+   * @param mask      A 6 bit mask
+   * @param clockwise A boolean
+   * @return The rotated mask
+   */
+  static int rotateHex(int mask, boolean clockwise) {
+    if (clockwise) {
+      return ((mask << 1) | (mask >>> 5)) & 0x3F;
+    }
+    return ((mask >>> 1) | (mask << 5)) & 0x3F;
+  }
+
+  /**
+   * Get the opposite of a square direction, 0 = top, 1 = right, 2 = bottom, 3 =
+   * left
+   * 
+   * @param direction An int, from 0 to 3
+   * @return An int, from 0 to 3
+   */
+  static int opposite(int direction) {
+    return (direction + 2) & 3;
+  }
+
+  /**
+   * Get the opposite of a direction on this board
+   * 
+   * @param direction An int, from 0 to directions - 1
+   * @return An int, from 0 to directions - 1
+   */
+  int oppositeOf(int direction) {
+    if (neighbors != null) {
+      return HexGrid.OPPOSITE[direction];
+    }
+    return opposite(direction);
+  }
+
+  /**
+   * Get the connectivity mask of a tile
+   * 
+   * @param index Index of a tile
+   * @return A 4 bit mask, 6 bits on a hexagon board
+   */
+  int mask(int index) {
+    return wiring[index];
+  }
+
+  /**
+   * Set the connectivity mask of a tile
+   * 
+   * @param index Index of a tile
+   * @param mask  A 4 bit mask, 6 bits on a hexagon board
+   */
+  void setMask(int index, int mask) {
+    if (wiring[index] != mask) {
+      wiring[index] = (byte) mask;
+      markChanged(index);
+    }
+  }
+
+  /**
+   * Rotate a tile by one side, a quarter turn or a sixth of a turn on a hexagon
+   * board, true = clockwise
+   * 
+   * @param index     Index of a tile
+   * @param clockwise A boolean
+   */
+  void rotate(int index, boolean clockwise) {
+    if (neighbors != null) {
+      setMask(index, rotateHex(wiring[index], clockwise));
+    }
+    else {
+      setMask(index, rotateSquare(wiring[index], clockwise));
+    }
+  }
+
+  /**
+   * Get the neighbor of a tile in the given direction regardless of wiring
+   * 
+   * @param index     Index of a tile
+   * @param direction An int, from 0 to directions - 1
+   * @return Index of the neighbor, -1 if off the board
+   */
+  int neighbor(int index, int direction) {
+    if (neighbors != null) {
+      return neighbors[6 * index + direction];
+    }
+    int row = index / width;
+    int col = index % width;
+    if (direction == 0 && row > 0) {
+      return index - width;
+    }
+    else if (direction == 1 && col < width - 1) {
+      return index + 1;
+    }
+    else if (direction == 2 && row < height - 1) {
+      return index + width;
+    }
+    else if (direction == 3 && col > 0) {
+      return index - 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Get the neighbor of a tile in the given direction if both tiles are wired
+   * towards each other
+   * 
+   * @param index     Index of a tile
+   * @param direction An int, from 0 to directions - 1
+   * @return Index of the neighbor, -1 if not connected
+   */
+  int connectedNeighbor(int index, int direction) {
+    if ((wiring[index] & (1 << direction)) == 0) {
+      return -1;
+    }
+    int next = neighbor(index, direction);
+    if (next >= 0 && (wiring[next] & (1 << oppositeOf(direction))) != 0) {
+      return next;
+    }
+    return -1;
+  }
+
+  /**
+   * Get the power level of a tile
+   * 
+   * @param index Index of a tile
+   * @return An int, from 0 to 5
+   */
+  int level(int index) {
+    return levels[index];
+  }
+
+  /**
+   * Set the power level of a tile
+   * 
+   * @param index Index of a tile
+   * @param level An int, from 0 to 5
+   */
+  void setLevel(int index, int level) {
+    if (levels[index] != level) {
+      levels[index] = (byte) level;
+      markChanged(index);
+    }
+  }
+
+  /**
+   * Record that a tile changed, for changes kept outside of the board such as
+   * the power station moving
+   * 
+   * @param index Index of a tile
+   */
+  void markChanged(int index) {
+    if (!changed[index]) {
+      changed[index] = true;
+      changedTiles[changedCount] = index;
+      changedCount++;
+    }
+  }
+
+  /**
+   * Forget every recorded change
+   */
+  void clearChanged() {
+    for (int i = 0; i < changedCount; i++) {
+      changed[changedTiles[i]] = false;
+    }
+    changedCount = 0;
+  }
+}
@@ -0,0 +1,181 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generate boards in the background, so starting a game takes a ReadyBoard
+ * off a queue instead of generating it on the UI thread. Each mode and size
+ * keeps up to capacity boards queued, and every board taken is replaced by
+ * one generated on a ForkJoinPool. The same pool generates puzzle packs of
+ * many seeds at once on every core
+ */
+class BoardPool {
+  static final int CAPACITY = 4;
+
+  int capacity; // The boards kept ready for each mode and size
+  ForkJoinPool workers; // Daemon threads, one per core
+  Random random = new Random(); // Draws the seeds of the boards kept ready
+
+  // mode and size -> the boards ready, and the boards being generated
+  HashMap<String, ArrayDeque<ReadyBoard>> ready = new HashMap<String, ArrayDeque<ReadyBoard>>();
+  HashMap<String, Integer> pending = new HashMap<String, Integer>();
+
+  /**
+   * The constructor
+   * 
+   * @param capacity The boards to keep ready for each mode and size
+   */
+  BoardPool(int capacity) {
+    this.capacity = capacity;
+    this.workers = new ForkJoinPool();
+  }
+
+  /**
+   * The constructor, keeping CAPACITY boards ready
+   */
+  BoardPool() {
+    this(CAPACITY);
+  }
+
+  /**
+   * Start generating boards of a mode and size, so the first game of it
+   * doesn't wait
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   */
+  synchronized void prepare(boolean hex, int width, int height) {
+    refill(hex, width, height);
+  }
+
+  /**
+   * Take a ready board of a mode and size, and generate another in its place
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   * @return A ReadyBoard, null if none is ready yet
+   */
+  synchronized ReadyBoard poll(boolean hex, int width, int height) {
+    ArrayDeque<ReadyBoard> queue = ready.get(key(hex, width, height));
+    ReadyBoard board = null;
+    if (queue != null) {
+      board = queue.poll();
+    }
+    refill(hex, width, height);
+    return board;
+  }
+
+  /**
+   * Get the number of boards ready for a mode and size
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   * @return An int
+   */
+  synchronized int readyCount(boolean hex, int width, int height) {
+    ArrayDeque<ReadyBoard> queue = ready.get(key(hex, width, height));
+    if (queue == null) {
+      return 0;
+    }
+    return queue.size();
+  }
+
+  /**
+   * Generate boards until capacity boards of a mode and size are ready or on
+   * the way, the caller holds the lock
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   */
+  void refill(boolean hex, int width, int height) {
+    String key = key(hex, width, height);
+    if (!ready.containsKey(key)) {
+      ready.put(key, new ArrayDeque<ReadyBoard>());
+      pending.put(key, 0);
+    }
+    while (ready.get(key).size() + pending.get(key) < capacity) {
+      pending.put(key, pending.get(key) + 1);
+      int seed = random.nextInt(1, 10000);
+      workers.execute(new Runnable() {
+        public void run() {
+          ReadyBoard board = null;
+          try {
+            board = new ReadyBoard(hex, seed, width, height);
+          }
+          finally {
+            finish(key, board);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Queue a board a worker finished
+   * 
+   * @param key   The mode and size of the board
+   * @param board The board, null if generating it failed
+   */
+  synchronized void finish(String key, ReadyBoard board) {
+    pending.put(key, pending.get(key) - 1);
+    if (board != null) {
+      ready.get(key).add(board);
+    }
+  }
+
+  /**
+   * Generate the board of every seed on every core, for a puzzle pack. The
+   * boards are the same as a game with that seed starts with
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   * @param seeds  The random seeds
+   * @return The boards, in the order of the seeds
+   */
+  ArrayList<ReadyBoard> generate(boolean hex, int width, int height, int[] seeds) {
+    ArrayList<ForkJoinTask<ReadyBoard>> tasks = new ArrayList<ForkJoinTask<ReadyBoard>>();
+    for (int seed : seeds) {
+      tasks.add(workers.submit(new Callable<ReadyBoard>() {
+        public ReadyBoard call() {
+          return new ReadyBoard(hex, seed, width, height);
+        }
+      }));
+    }
+    ArrayList<ReadyBoard> boards = new ArrayList<ReadyBoard>(seeds.length);
+    for (ForkJoinTask<ReadyBoard> task : tasks) {
+      boards.add(task.join());
+    }
+    return boards;
+  }
+
+  /**
+   * Stop the workers, boards being generated are dropped
+   */
+  void shutdown() {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Get the key of a mode and size
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   * @return A String
+   */
+  static String key(boolean hex, int width, int height) {
+    if (hex) {
+      return "hex " + width + "x" + height;
+    }
+    return width + "x" + height;
+  }
+}
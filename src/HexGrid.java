@@ -0,0 +1,218 @@
+/**
+ * Represent the layout of a hexagon board of flat topped tiles in rings around
+ * a center tile. A tile is at axial coordinates (q, r): the direction d of a
+ * HexGamePiece (0 = north, clockwise to 5 = northwest) moves by (DQ[d], DR[d]).
+ * Tiles are indexed ring by ring, and within ring k from the north tile
+ * clockwise, so the tile at (layer, item) has the index
+ * 3 * layer * (layer - 1) + 1 + item. The neighbors of every tile are
+ * precomputed, so moving across the board is a table lookup
+ */
+class HexGrid {
+  static final int[] DQ = { 0, 1, 1, 0, -1, -1 };
+  static final int[] DR = { -1, -1, 0, 1, 1, 0 };
+  static final int[] OPPOSITE = { 3, 4, 5, 0, 1, 2 };
+
+  static final double SQRT3 = Math.sqrt(3);
+
+  int layers; // The number of rings, counting the center tile as one
+  int[] q; // index -> axial q
+  int[] r; // index -> axial r
+  int[] neighbors; // index * 6 + direction -> index of the neighbor, -1 if none
+
+  /**
+   * The constructor
+   * 
+   * @param layers The number of rings, counting the center tile as one
+   */
+  HexGrid(int layers) {
+    this.layers = layers;
+    int n = tileCount(layers);
+    q = new int[n];
+    r = new int[n];
+
+    int index = 1;
+    for (int layer = 1; layer < layers; layer++) {
+      int tileQ = 0;
+      int tileR = -layer;
+      // From the north tile, walk each side of the ring, starting southeast
+      for (int side = 0; side < 6; side++) {
+        int direction = (side + 2) % 6;
+        for (int step = 0; step < layer; step++) {
+          q[index] = tileQ;
+          r[index] = tileR;
+          index++;
+          tileQ += DQ[direction];
+          tileR += DR[direction];
+        }
+      }
+    }
+
+    neighbors = new int[6 * n];
+    for (int i = 0; i < n; i++) {
+      for (int direction = 0; direction < 6; direction++) {
+        neighbors[6 * i + direction] = index(q[i] + DQ[direction], r[i] + DR[direction]);
+      }
+    }
+  }
+
+  /**
+   * Get the number of tiles of a board with the given number of rings
+   * 
+   * @param layers The number of rings, counting the center tile as one
+   * @return An int
+   */
+  static int tileCount(int layers) {
+    if (layers <= 0) {
+      return 0;
+    }
+    return 3 * layers * (layers - 1) + 1;
+  }
+
+  /**
+   * Get the number of tiles
+   * 
+   * @return An int
+   */
+  int size() {
+    return q.length;
+  }
+
+  /**
+   * Get the neighbor of a tile in the given direction
+   * 
+   * @param index     Index of a tile
+   * @param direction An int, from 0 (north) to 5 (northwest), clockwise
+   * @return Index of the neighbor, -1 if off the board
+   */
+  int neighbor(int index, int direction) {
+    return neighbors[6 * index + direction];
+  }
+
+  /**
+   * Get the direction from a tile to the one next to it
+   * 
+   * @param from Index of a tile
+   * @param to   Index of a neighbor of it
+   * @return An int, from 0 to 5, -1 if they are not neighbors
+   */
+  int directionTo(int from, int to) {
+    for (int direction = 0; direction < 6; direction++) {
+      if (neighbors[6 * from + direction] == to) {
+        return direction;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the ring of the tile at the given axial coordinates, 0 for the center
+   * 
+   * @param q Axial q
+   * @param r Axial r
+   * @return An int
+   */
+  static int layerOf(int q, int r) {
+    return Math.max(Math.abs(q), Math.max(Math.abs(r), Math.abs(q + r)));
+  }
+
+  /**
+   * Get the index of the tile at the given axial coordinates
+   * 
+   * @param q Axial q
+   * @param r Axial r
+   * @return Index of the tile, -1 if off the board
+   */
+  int index(int q, int r) {
+    int layer = layerOf(q, r);
+    if (layer >= layers) {
+      return -1;
+    }
+    else if (layer == 0) {
+      return 0;
+    }
+    return tileCount(layer) + itemOf(q, r, layer);
+  }
+
+  /**
+   * Get the position of a tile within its ring, clockwise from the north tile
+   * 
+   * @param q     Axial q
+   * @param r     Axial r
+   * @param layer The ring of the tile, at least 1
+   * @return An int, from 0 to 6 * layer - 1
+   */
+  static int itemOf(int q, int r, int layer) {
+    if (r == -layer && q < layer) {
+      return q;
+    }
+    else if (q == layer && r < 0) {
+      return 2 * layer + r;
+    }
+    else if (q + r == layer && q > 0) {
+      return 3 * layer - q;
+    }
+    else if (r == layer && q > -layer) {
+      return 3 * layer - q;
+    }
+    else if (q == -layer && r > 0) {
+      return 5 * layer - r;
+    }
+    return 6 * layer + q;
+  }
+
+  /**
+   * Get the tile under a point, in constant time: convert the point to
+   * fractional axial coordinates and round them to the nearest tile
+   * 
+   * @param x    The x of the point, from the center of the board
+   * @param y    The y of the point, from the center of the board
+   * @param size The side length of a tile
+   * @return Index of the tile, -1 if off the board
+   */
+  int tileAt(double x, double y, double size) {
+    double fq = (2.0 / 3 * x) / size;
+    double fr = (-1.0 / 3 * x + SQRT3 / 3 * y) / size;
+    double fs = -fq - fr;
+
+    long rq = Math.round(fq);
+    long rr = Math.round(fr);
+    long rs = Math.round(fs);
+    double dq = Math.abs(rq - fq);
+    double dr = Math.abs(rr - fr);
+    double ds = Math.abs(rs - fs);
+
+    // The three have to add up to 0, fix the one that was rounded the most
+    if (dq > dr && dq > ds) {
+      rq = -rr - rs;
+    }
+    else if (dr > ds) {
+      rr = -rq - rs;
+    }
+    if (Math.abs(rq) >= layers || Math.abs(rr) >= layers) {
+      return -1;
+    }
+    return index((int) rq, (int) rr);
+  }
+
+  /**
+   * Get the x of the center of a tile, from the center of the board
+   * 
+   * @param index Index of a tile
+   * @param size  The side length of a tile
+   * @return A double
+   */
+  double centerX(int index, double size) {
+    return 1.5 * size * q[index];
+  }
+
+  /**
+   * Get the y of the center of a tile, from the center of the board
+   * 
+   * @param index Index of a tile
+   * @param size  The side length of a tile
+   * @return A double
+   */
+  double centerY(int index, double size) {
+    return SQRT3 * size * (r[index] + q[index] / 2.0);
+  }
+}
@@ -0,0 +1,593 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The rules of Light Em All without any rendering: the board, its minimum
+ * spanning tree, rotations, the power station and the score. A World (or a
+ * bot, or a test) drives it and reads the BitBoard to show it. A hexagon board
+ * is one row of grid.size() tiles, so a tile is at row 0 and its index as col
+ */
+class LightEmAllEngine {
+  // Directions, the same as the bits of a mask in BitBoard
+  static final int TOP = 0;
+  static final int RIGHT = 1;
+  static final int BOTTOM = 2;
+  static final int LEFT = 3;
+
+  // Print timings of the board generation, run with -Dlightemall.debug=true
+  static final boolean DEBUG = Boolean.getBoolean("lightemall.debug");
+
+  // The order each tile draws the weights of its edges in, by where the tile
+  // is on the board. Kept as it was when every edge was drawn from both ends,
+  // so a seed makes the same board
+  static final int[] DRAW_TOP_LEFT = { RIGHT, BOTTOM };
+  static final int[] DRAW_TOP_RIGHT = { LEFT, BOTTOM };
+  static final int[] DRAW_BOTTOM_RIGHT = { LEFT, TOP };
+  static final int[] DRAW_BOTTOM_LEFT = { RIGHT, TOP };
+  static final int[] DRAW_TOP = { RIGHT, BOTTOM, LEFT };
+  static final int[] DRAW_BOTTOM = { RIGHT, TOP, LEFT };
+  static final int[] DRAW_LEFT = { RIGHT, TOP, BOTTOM };
+  static final int[] DRAW_RIGHT = { LEFT, TOP, BOTTOM };
+  static final int[] DRAW_INNER = { LEFT, TOP, BOTTOM, RIGHT };
+
+  int width;
+  int height;
+  int randomSeed;
+
+  HexGrid grid; // The layout of a hexagon board, null for a square board
+
+  BitBoard bits; // The wiring and power of every tile
+
+  // The edges of the minimum spanning tree, in the order Kruskal added them
+  int[] mstFrom;
+  int[] mstTo;
+  int[] mstWeight;
+  int mstSize;
+
+  TreeAdjacency adjacency; // The minimum spanning tree as adjacency
+  int radius; // The radius of the power
+
+  // the current location of the power station
+  int powerRow = 0;
+  int powerCol = 0;
+
+  PowerEngine power; // Propagates power from the power station
+
+  // Told about every change of power, kept from one game to the next
+  ArrayList<PowerListener> listeners = new ArrayList<PowerListener>();
+
+  int steps = 0; // Steps took in the game
+  double time = 0.0; // time used in the game
+
+  /**
+   * Start a new game: generate the board for the seed, scramble it, and power
+   * it from the top left corner
+   * 
+   * @param seed   The random seed
+   * @param width  The width of the board
+   * @param height The height of the board
+   */
+  void newGame(int seed, int width, int height) {
+    generate(seed, width, height);
+    scramble();
+    power.recompute(0);
+  }
+
+  /**
+   * Start a new game on a hexagon board: generate it for the seed, scramble
+   * it, and power it from the center
+   * 
+   * @param seed  The random seed
+   * @param rings The number of rings of the board
+   */
+  void newHexGame(int seed, int rings) {
+    generateHex(seed, rings);
+    scramble();
+    power.recompute(0);
+  }
+
+  /**
+   * Generate the solved board for a seed: the minimum spanning tree, the wiring
+   * following it and the radius of the power, with the power station back in
+   * the top left corner and nothing powered
+   * 
+   * @param seed   The random seed
+   * @param width  The width of the board
+   * @param height The height of the board
+   */
+  void generate(int seed, int width, int height) {
+    long start = System.nanoTime();
+    this.width = width;
+    this.height = height;
+    this.randomSeed = seed;
+    this.grid = null;
+    this.bits = new BitBoard(width, height);
+    int n = width * height;
+    this.mstFrom = new int[Math.max(n - 1, 0)];
+    this.mstTo = new int[Math.max(n - 1, 0)];
+    this.mstWeight = new int[Math.max(n - 1, 0)];
+    long allocated = System.nanoTime();
+
+    long[] phases = new long[1];
+    this.mstSize = makeTree(width, height, seed, mstFrom, mstTo, mstWeight, phases);
+    long generated = System.nanoTime();
+
+    for (int i = 0; i < mstSize; i++) {
+      connect(mstFrom[i], mstTo[i]);
+    }
+    this.adjacency = new TreeAdjacency(n, mstFrom, mstTo, mstSize);
+    long wired = System.nanoTime();
+
+    this.radius = adjacency.radius(0);
+    long measured = System.nanoTime();
+
+    if (DEBUG) {
+      System.out.println("generate " + width + "x" + height + ": allocation "
+          + millis(allocated - start) + " ms, edges " + millis(phases[0]) + " ms, mst "
+          + millis(generated - allocated - phases[0]) + " ms, wiring "
+          + millis(wired - generated) + " ms, radius " + millis(measured - wired) + " ms");
+    }
+
+    startGame();
+  }
+
+  /**
+   * Generate the solved hexagon board for a seed, the same way as generate():
+   * the minimum spanning tree of makeHexTree(), the wiring following it and
+   * the radius of the power, with the power station back in the center and
+   * nothing powered
+   * 
+   * @param seed  The random seed
+   * @param rings The number of rings of the board
+   */
+  void generateHex(int seed, int rings) {
+    this.grid = new HexGrid(rings);
+    int n = grid.size();
+    this.width = n;
+    this.height = 1;
+    this.randomSeed = seed;
+    this.bits = new BitBoard(grid);
+    this.mstFrom = new int[n];
+    this.mstTo = new int[n];
+    this.mstWeight = new int[n];
+    this.mstSize = makeHexTree(grid, seed, mstFrom, mstTo, mstWeight);
+
+    for (int i = 0; i < mstSize; i++) {
+      connect(mstFrom[i], mstTo[i]);
+    }
+    this.adjacency = new TreeAdjacency(n, mstFrom, mstTo, mstSize);
+    this.radius = adjacency.radius(0);
+    startGame();
+  }
+
+  /**
+   * Start a game on a board generated ahead of time, with the power station
+   * back in the top left corner, or the center of a hexagon board, and nothing
+   * powered
+   * 
+   * @param board A ReadyBoard
+   */
+  void load(ReadyBoard board) {
+    this.grid = board.grid;
+    if (board.hex) {
+      this.width = grid.size();
+      this.height = 1;
+    }
+    else {
+      this.width = board.width;
+      this.height = board.height;
+    }
+    this.randomSeed = board.seed;
+    this.bits = board.bits;
+    this.mstFrom = board.mstFrom;
+    this.mstTo = board.mstTo;
+    this.mstWeight = board.mstWeight;
+    this.mstSize = board.mstSize;
+    this.adjacency = board.adjacency;
+    this.radius = board.radius;
+    startGame();
+  }
+
+  /**
+   * Put the power station on the first tile with nothing powered, and start
+   * counting the steps and time of the game
+   */
+  void startGame() {
+    this.powerRow = 0;
+    this.powerCol = 0;
+    this.power = new PowerEngine(bits, radius, listeners);
+    this.steps = 0;
+    this.time = 0.0;
+  }
+
+  /**
+   * Rotate each tile on the board random times, the same way for the same
+   * seed: a square tile one to three times either way, a hexagon one to five
+   * times clockwise
+   */
+  void scramble() {
+    Random random = new Random(randomSeed);
+
+    for (int index = 0; index < bits.size(); index++) {
+      if (grid == null) {
+        for (int i = 0; i < random.nextInt(1, 4); i++) {
+          bits.rotate(index, random.nextBoolean());
+        }
+      }
+      else {
+        for (int i = 0; i < random.nextInt(1, 6); i++) {
+          bits.rotate(index, true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Wire two neighboring tiles towards each other
+   * 
+   * @param from Index of a tile
+   * @param to   Index of a tile next to it
+   */
+  void connect(int from, int to) {
+    for (int dir = 0; dir < bits.directions; dir++) {
+      if (bits.neighbor(from, dir) == to) {
+        bits.setMask(from, bits.mask(from) | (1 << dir));
+        bits.setMask(to, bits.mask(to) | (1 << bits.oppositeOf(dir)));
+      }
+    }
+  }
+
+  /**
+   * The player rotates the tile at the given position clockwise, this counts as
+   * a step
+   * 
+   * @param row The row of the tile
+   * @param col The col of the tile
+   */
+  void rotate(int row, int col) {
+    turn(row * width + col);
+    steps++;
+  }
+
+  /**
+   * Rotate the tile at the given index clockwise and update the power
+   * 
+   * @param index Index of a tile (row * width + col, or its index in grid)
+   */
+  void turn(int index) {
+    bits.rotate(index, true);
+    power.afterRotation(index);
+  }
+
+  /**
+   * Get the index of the tile of the power station
+   * 
+   * @return An int
+   */
+  int station() {
+    return powerRow * width + powerCol;
+  }
+
+  /**
+   * Check if the power station can move in the given direction, both tiles
+   * have to be wired towards each other
+   * 
+   * @param direction TOP, RIGHT, BOTTOM or LEFT, or from 0 (north) to 5
+   *                  (northwest) clockwise on a hexagon board
+   * @return A boolean
+   */
+  boolean canMovePower(int direction) {
+    return bits.connectedNeighbor(station(), direction) >= 0;
+  }
+
+  /**
+   * Move the power station in the given direction if the wiring allows it
+   * 
+   * @param direction TOP, RIGHT, BOTTOM or LEFT, or from 0 (north) to 5
+   *                  (northwest) clockwise on a hexagon board
+   * @return If the power station moved
+   */
+  boolean movePower(int direction) {
+    int next = bits.connectedNeighbor(station(), direction);
+    if (next < 0) {
+      return false;
+    }
+    placePowerStation(next / width, next % width);
+    return true;
+  }
+
+  /**
+   * Put the power station on the given tile and update the power
+   * 
+   * @param row The row of the tile
+   * @param col The col of the tile
+   */
+  void placePowerStation(int row, int col) {
+    bits.markChanged(station());
+    powerRow = row;
+    powerCol = col;
+    bits.markChanged(station());
+    power.afterStationMove(station());
+  }
+
+  /**
+   * Solve the board as it is now, without changing it
+   * 
+   * @return A Solver holding the clicks that solve the board
+   */
+  Solver solve() {
+    Solver solver = new Solver(bits, radius);
+    solver.solve();
+    return solver;
+  }
+
+  /**
+   * Check if every tile is powered
+   * 
+   * @return A boolean
+   */
+  boolean isSolved() {
+    return power.solved;
+  }
+
+  /**
+   * Follow the power of every game from now on
+   * 
+   * @param listener A PowerListener
+   */
+  void addListener(PowerListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Stop following the power
+   * 
+   * @param listener A PowerListener
+   */
+  void removeListener(PowerListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * The score of the game so far, based on the size of the board, the time
+   * used and the steps took
+   * 
+   * @return An int
+   */
+  int score() {
+    int baseScore = width * height + 100;
+    int difficultyIndex = ((width * height) / 25) * 5;
+    int timeIndex = remainingTimeToScore();
+    int stepIndex = remainingStepToScore();
+
+    return baseScore + difficultyIndex - timeIndex - stepIndex;
+  }
+
+  /**
+   * The function to calculate how steps took affect one's score
+   * 
+   * @return The score to be decreased
+   */
+  int remainingStepToScore() {
+    return (int) (5 * Math.log(steps));
+  }
+
+  /**
+   * The function to calculate how time passed affect one's score
+   * 
+   * @return The score to be decreased
+   */
+  int remainingTimeToScore() {
+    return (int) (3 * Math.log(time));
+  }
+
+  /**
+   * Make a minimum spanning tree of a width by height board, includes few
+   * steps: 1, draw a random weight for every potential edge on the board,
+   * keeping each edge once (from a tile to its left or top neighbor) 2, sort
+   * the edges by weight with a counting sort, weights are from 0 to 99 3, with
+   * UnionFind over the index row * width + col, make the mst with Kruskal
+   * algorithm
+   * 
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @param seed   The random seed
+   * @param from   Filled with the tile each mst edge starts from
+   * @param to     Filled with the tile each mst edge goes to
+   * @param weight Filled with the weight of each mst edge
+   * @param phases Filled with the nanoseconds spent drawing the edges
+   * @return The number of mst edges
+   */
+  static int makeTree(int width, int height, int seed, int[] from, int[] to, int[] weight,
+      long[] phases) {
+    long start = System.nanoTime();
+    Random random = new Random(seed);
+    int n = width * height;
+
+    // An edge is encoded as (index of from) * 2, plus 1 if it goes to the top
+    // neighbor instead of the left one
+    int[] edges = new int[2 * n];
+    int[] weights = new int[2 * n];
+    int[] counts = new int[101];
+    int edgeCount = 0;
+
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        for (int direction : drawOrder(row, col, width, height)) {
+          if ((direction == TOP && row == 0) || (direction == RIGHT && col == width - 1)
+              || (direction == BOTTOM && row == height - 1) || (direction == LEFT && col == 0)) {
+            continue;
+          }
+          int w = random.nextInt(100);
+          // The edge to a right or bottom neighbor is drawn again from there
+          if (direction == TOP || direction == LEFT) {
+            edges[edgeCount] = (row * width + col) * 2;
+            if (direction == TOP) {
+              edges[edgeCount]++;
+            }
+            weights[edgeCount] = w;
+            counts[w + 1]++;
+            edgeCount++;
+          }
+        }
+      }
+    }
+    phases[0] = System.nanoTime() - start;
+
+    // Stable counting sort, edges of the same weight keep the order they were
+    // drawn in
+    for (int w = 0; w < 100; w++) {
+      counts[w + 1] += counts[w];
+    }
+    int[] sorted = new int[edgeCount];
+    int[] sortedWeights = new int[edgeCount];
+    for (int i = 0; i < edgeCount; i++) {
+      int position = counts[weights[i]];
+      sorted[position] = edges[i];
+      sortedWeights[position] = weights[i];
+      counts[weights[i]]++;
+    }
+
+    UnionFind uf = new UnionFind(n);
+    int size = 0;
+
+    for (int i = 0; i < edgeCount && size < n - 1; i++) {
+      int a = sorted[i] / 2;
+      int b;
+      if (sorted[i] % 2 == 1) {
+        b = a - width;
+      }
+      else {
+        b = a - 1;
+      }
+      int x = uf.find(a);
+      int y = uf.find(b);
+      if (x != y) {
+        from[size] = a;
+        to[size] = b;
+        weight[size] = sortedWeights[i];
+        size++;
+        uf.union(x, y);
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Make a minimum spanning tree of a hexagon board, the same way as makeTree():
+   * every tile draws a random weight for its edges to the northeast, southeast
+   * and south, so each edge is drawn once, then the edges are counting sorted
+   * by weight and joined with Kruskal algorithm over the tile indices
+   * 
+   * @param grid   The layout of the board
+   * @param seed   The random seed
+   * @param from   Filled with the tile each mst edge starts from
+   * @param to     Filled with the tile each mst edge goes to
+   * @param weight Filled with the weight of each mst edge
+   * @return The number of mst edges
+   */
+  static int makeHexTree(HexGrid grid, int seed, int[] from, int[] to, int[] weight) {
+    Random random = new Random(seed);
+    int n = grid.size();
+
+    // An edge is encoded as (index of from) * 4 + its direction
+    int[] edges = new int[3 * n];
+    int[] weights = new int[3 * n];
+    int[] counts = new int[101];
+    int edgeCount = 0;
+
+    for (int index = 0; index < n; index++) {
+      for (int d = 1; d <= 3; d++) {
+        if (grid.neighbor(index, d) >= 0) {
+          int w = random.nextInt(100);
+          edges[edgeCount] = index * 4 + d;
+          weights[edgeCount] = w;
+          counts[w + 1]++;
+          edgeCount++;
+        }
+      }
+    }
+
+    // Stable counting sort, edges of the same weight keep the order they were
+    // drawn in
+    for (int w = 0; w < 100; w++) {
+      counts[w + 1] += counts[w];
+    }
+    int[] sorted = new int[edgeCount];
+    int[] sortedWeights = new int[edgeCount];
+    for (int i = 0; i < edgeCount; i++) {
+      int position = counts[weights[i]];
+      sorted[position] = edges[i];
+      sortedWeights[position] = weights[i];
+      counts[weights[i]]++;
+    }
+
+    UnionFind uf = new UnionFind(n);
+    int size = 0;
+
+    for (int i = 0; i < edgeCount && size < n - 1; i++) {
+      int a = sorted[i] / 4;
+      int d = sorted[i] % 4;
+      int b = grid.neighbor(a, d);
+      int x = uf.find(a);
+      int y = uf.find(b);
+      if (x != y) {
+        from[size] = a;
+        to[size] = b;
+        weight[size] = sortedWeights[i];
+        size++;
+        uf.union(x, y);
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Get the order a tile draws the weights of its edges in
+   * 
+   * @param row    The row of the tile
+   * @param col    The col of the tile
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @return An array of directions
+   */
+  static int[] drawOrder(int row, int col, int width, int height) {
+    if (row == 0 && col == 0) {
+      return DRAW_TOP_LEFT;
+    }
+    else if (col == width - 1 && row == 0) {
+      return DRAW_TOP_RIGHT;
+    }
+    else if (row == height - 1 && col == width - 1) {
+      return DRAW_BOTTOM_RIGHT;
+    }
+    else if (row == height - 1 && col == 0) {
+      return DRAW_BOTTOM_LEFT;
+    }
+    else if (row == 0) {
+      return DRAW_TOP;
+    }
+    else if (row == height - 1) {
+      return DRAW_BOTTOM;
+    }
+    else if (col == 0) {
+      return DRAW_LEFT;
+    }
+    else if (col == width - 1) {
+      return DRAW_RIGHT;
+    }
+    return DRAW_INNER;
+  }
+
+  /**
+   * Convert nanoseconds to milliseconds, for the debug timings
+   * 
+   * @param nanos Nanoseconds
+   * @return A String with one decimal
+   */
+  static String millis(long nanos) {
+    return String.format("%.1f", nanos / 1000000.0);
+  }
+}
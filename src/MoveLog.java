@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represent the moves of one game, enough with its seed, mode and size to
+ * play it again with a Replay. Each move is a varint of 7 bits per byte, the
+ * lowest first and the high bit set on every byte but the last: a click on a
+ * tile is (index << 2 | ROTATE), a key pressed to move the power station is
+ * (direction << 2 | MOVE_POWER), an undo UNDO and a redo REDO, so a move takes
+ * at most two bytes on boards up to 4096 tiles and three up to half a
+ * million. Given a file, the log writes it as the game is played: a
+ * header of HEADER_SIZE bytes (MAGIC, VERSION, the mode, the seed, the width
+ * and the height) with the first move, so a game without moves leaves no
+ * file, and then every FLUSH_BYTES of moves
+ */
+class MoveLog {
+  static final int MAGIC = 0x4C454D4C; // "LEML"
+  static final short VERSION = 2;
+  static final int HEADER_SIZE = 20;
+  static final int FLUSH_BYTES = 4096;
+
+  static final int ROTATE = 0;
+  static final int MOVE_POWER = 1;
+  static final int UNDO = 2;
+  static final int REDO = 3;
+
+  boolean hex; // If the game is played on a hexagon board
+  int seed; // The random seed of the board
+  int width; // The width of the board
+  int height; // The height of the board, the rings of a hexagon board
+
+  byte[] bytes = new byte[64]; // The moves, encoded
+  int length = 0; // The bytes of moves
+  int moves = 0; // The number of moves
+
+  Path file; // Where the log is written, null to keep it in memory only
+  int written = -1; // The bytes of moves in the file, -1 before the header
+
+  /**
+   * The constructor of the log of a new game, no move yet
+   * 
+   * @param hex    If the game is played on a hexagon board
+   * @param seed   The random seed of the board
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   */
+  MoveLog(boolean hex, int seed, int width, int height) {
+    this.hex = hex;
+    this.seed = seed;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Record a click on a tile
+   * 
+   * @param index Index of the tile
+   */
+  void rotate(int index) {
+    add((index << 2) | ROTATE);
+  }
+
+  /**
+   * Record a key pressed to move the power station, whether it moved or not
+   * 
+   * @param direction The direction, see BitBoard
+   */
+  void movePower(int direction) {
+    add((direction << 2) | MOVE_POWER);
+  }
+
+  /**
+   * Record an undo, whether there was a move to undo or not
+   */
+  void undo() {
+    add(UNDO);
+  }
+
+  /**
+   * Record a redo, whether there was a move to redo or not
+   */
+  void redo() {
+    add(REDO);
+  }
+
+  /**
+   * Record a move, written to the file once FLUSH_BYTES are waiting
+   * 
+   * @param move An encoded move
+   */
+  void add(int move) {
+    if (length + 5 > bytes.length) {
+      bytes = java.util.Arrays.copyOf(bytes, 2 * bytes.length);
+    }
+    while (move >= 0x80) {
+      bytes[length] = (byte) (move | 0x80);
+      length++;
+      move >>>= 7;
+    }
+    bytes[length] = (byte) move;
+    length++;
+    moves++;
+    if (file != null && (written < 0 || length - written >= FLUSH_BYTES)) {
+      flush();
+    }
+  }
+
+  /**
+   * Write the moves not yet in the file, nothing before the first move. If the
+   * file can't be written, the log is kept in memory from then on
+   */
+  void flush() {
+    if (file == null || length == 0) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      if (written < 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        if (hex) {
+          header.put((byte) 1);
+        }
+        else {
+          header.put((byte) 0);
+        }
+        header.put((byte) 0);
+        header.putInt(seed);
+        header.putInt(width);
+        header.putInt(height);
+        header.flip();
+        PuzzlePack.writeFully(channel, header, 0);
+        channel.truncate(HEADER_SIZE);
+        written = 0;
+      }
+      PuzzlePack.writeFully(channel, ByteBuffer.wrap(bytes, written, length - written),
+          HEADER_SIZE + written);
+      written = length;
+    }
+    catch (IOException e) {
+      System.err.println("Moves are not saved: " + e.getMessage());
+      file = null;
+    }
+  }
+
+  /**
+   * Read the log of a game from a file
+   * 
+   * @param file A file written by flush()
+   * @return A MoveLog, kept in memory only
+   * @throws IOException If the file can't be read or isn't a move log
+   */
+  static MoveLog read(Path file) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+    if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC || in.getShort() != VERSION) {
+      throw new IOException("Not a move log: " + file);
+    }
+    boolean hex = in.get() == 1;
+    in.get();
+    int seed = in.getInt();
+    int width = in.getInt();
+    int height = in.getInt();
+    MoveLog log = new MoveLog(hex, seed, width, height);
+    log.bytes = new byte[Math.max(in.remaining(), 64)];
+    in.get(log.bytes, 0, in.remaining());
+    log.length = in.limit() - HEADER_SIZE;
+    // a move cut short by a crash is dropped
+    while (log.length > 0 && log.bytes[log.length - 1] < 0) {
+      log.length--;
+    }
+    for (int i = 0; i < log.length; i++) {
+      if (log.bytes[i] >= 0) {
+        log.moves++;
+      }
+    }
+    return log;
+  }
+}
@@ -0,0 +1,324 @@
+import java.util.ArrayList;
+
+/**
+ * Represent the power propagation over the wiring of a BitBoard, square or
+ * hexagon. A full recompute is one BFS from the power station; after a
+ * rotation only the tiles whose path went through the rotated tile are
+ * recomputed, and after the power station moves only the previously reached
+ * tiles are reset. The power level of every tile is written back into the
+ * BitBoard
+ */
+class PowerEngine {
+  BitBoard bits; // The board the power flows through
+  int radius; // The radius of the power
+  int station = 0; // Index of the power station
+
+  int[] distance; // index -> distance to power station, -1 if unreached
+  int[] parent; // index -> the tile it was reached from in the BFS, -1 if none
+  int[] queueNode; // the BFS queue, reused between updates
+  int[] queueDist; // the distance each queued tile was offered with
+  int[] queueFrom; // the tile each queued tile was offered from
+  int[] touched; // indices whose distance changed in the current update
+  int touchedCount;
+  boolean[] inTouched;
+  int[] reached; // indices of every tile with a distance
+  int[] reachedPos; // index -> position in reached, -1 if unreached
+  int reachedCount;
+  long[] offers; // (distance << 32 | direction << 29 | index) offered after a rotation
+  int[] seeds; // (index, distance, parent) triples the BFS starts from
+
+  int poweredCount = 0; // The number of tiles with a power level above 0
+  boolean solved = false; // If every tile was powered after the last update
+  ArrayList<PowerListener> listeners; // Told about every change of power
+
+  /**
+   * The constructor, every tile starts unreached
+   * 
+   * @param bits      The board
+   * @param radius    The radius of the power
+   * @param listeners Told about every change of power
+   */
+  PowerEngine(BitBoard bits, int radius, ArrayList<PowerListener> listeners) {
+    this.bits = bits;
+    this.radius = radius;
+    this.listeners = listeners;
+    int n = bits.size();
+    int sides = bits.directions;
+    distance = new int[n];
+    parent = new int[n];
+    queueNode = new int[sides * n + 1];
+    queueDist = new int[sides * n + 1];
+    queueFrom = new int[sides * n + 1];
+    touched = new int[n];
+    inTouched = new boolean[n];
+    reached = new int[n];
+    reachedPos = new int[n];
+    offers = new long[sides * n];
+    seeds = new int[3 * sides * n + 3];
+    for (int i = 0; i < n; i++) {
+      distance[i] = -1;
+      parent[i] = -1;
+      reachedPos[i] = -1;
+    }
+  }
+
+  /**
+   * Map a distance from the power station to a power level, 5 is the
+   * brightest, 0 means out of range or not connected
+   * 
+   * @param distance The distance, -1 if not connected
+   * @return An int from 0 to 5
+   */
+  int levelFor(int distance) {
+    if (distance < 0) {
+      return 0;
+    }
+    else if (distance <= radius * 0.2) {
+      return 5;
+    }
+    else if (distance <= radius * 0.4) {
+      return 4;
+    }
+    else if (distance <= radius * 0.6) {
+      return 3;
+    }
+    else if (distance <= radius * 0.8) {
+      return 2;
+    }
+    else if (distance <= radius) {
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Recompute the power of every tile from scratch
+   * 
+   * @param station Index of the power station
+   */
+  void recompute(int station) {
+    this.station = station;
+    touchedCount = 0;
+    for (int i = 0; i < distance.length; i++) {
+      setDistance(i, -1, -1);
+    }
+    propagateFromStation();
+  }
+
+  /**
+   * Re-root the power after the power station moved, only the tiles reached
+   * before and the tiles reached now are updated
+   * 
+   * @param station Index of the power station
+   */
+  void afterStationMove(int station) {
+    this.station = station;
+    touchedCount = 0;
+    for (int i = reachedCount - 1; i >= 0; i--) {
+      setDistance(reached[i], -1, -1);
+    }
+    propagateFromStation();
+  }
+
+  /**
+   * Update the power after the tile at the given index was rotated. The tiles
+   * that were reached through it are disconnected, then offered again from the
+   * reached tiles around them; the BFS from those offers also shortens any path
+   * the new wiring opens up
+   * 
+   * @param index Index of the rotated tile
+   */
+  void afterRotation(int index) {
+    if (index == station) {
+      // Every reached tile hangs off the power station
+      afterStationMove(station);
+      return;
+    }
+    if (distance[index] < 0 && !nextToReached(index)) {
+      // Still cut off, nothing else can change
+      return;
+    }
+    touchedCount = 0;
+    touch(index);
+    // The subtree of the rotated tile, collected in touched
+    if (distance[index] >= 0) {
+      for (int i = 0; i < touchedCount; i++) {
+        int current = touched[i];
+        for (int dir = 0; dir < bits.directions; dir++) {
+          int next = bits.neighbor(current, dir);
+          if (next >= 0 && parent[next] == current) {
+            touch(next);
+          }
+        }
+      }
+    }
+    int subtreeSize = touchedCount;
+    for (int i = 0; i < subtreeSize; i++) {
+      setDistance(touched[i], -1, -1);
+    }
+
+    int offerCount = 0;
+    for (int i = 0; i < subtreeSize; i++) {
+      int current = touched[i];
+      for (int dir = 0; dir < bits.directions; dir++) {
+        int next = bits.connectedNeighbor(current, dir);
+        if (next >= 0 && distance[next] >= 0) {
+          offers[offerCount] = ((long) (distance[next] + 1) << 32) | ((long) dir << 29) | current;
+          offerCount++;
+        }
+      }
+    }
+    java.util.Arrays.sort(offers, 0, offerCount);
+
+    for (int i = 0; i < offerCount; i++) {
+      int current = (int) (offers[i] & 0x1FFFFFFF);
+      seeds[3 * i] = current;
+      seeds[3 * i + 1] = (int) (offers[i] >>> 32);
+      seeds[3 * i + 2] = bits.connectedNeighbor(current, (int) ((offers[i] >>> 29) & 7));
+    }
+    propagate(offerCount);
+    applyLevels();
+  }
+
+  /**
+   * Check if a tile is wired to any reached tile
+   * 
+   * @param index Index of a tile
+   * @return A boolean
+   */
+  boolean nextToReached(int index) {
+    for (int dir = 0; dir < bits.directions; dir++) {
+      int next = bits.connectedNeighbor(index, dir);
+      if (next >= 0 && distance[next] >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Run the BFS from the power station alone and apply the levels
+   */
+  void propagateFromStation() {
+    seeds[0] = station;
+    seeds[1] = 0;
+    seeds[2] = -1;
+    propagate(1);
+    applyLevels();
+  }
+
+  /**
+   * Run the BFS from the seeds, (index, distance, parent) triples sorted by
+   * distance. Seeds are merged with the BFS queue, so tiles are settled in
+   * order of distance and each tile is settled at most once
+   * 
+   * @param seedCount The number of seeds
+   */
+  void propagate(int seedCount) {
+    int head = 0;
+    int tail = 0;
+    int nextSeed = 0;
+    while (head < tail || nextSeed < seedCount) {
+      int current;
+      int dist;
+      int from;
+      if (nextSeed < seedCount && (head == tail || seeds[3 * nextSeed + 1] <= queueDist[head])) {
+        current = seeds[3 * nextSeed];
+        dist = seeds[3 * nextSeed + 1];
+        from = seeds[3 * nextSeed + 2];
+        nextSeed++;
+      }
+      else {
+        current = queueNode[head];
+        dist = queueDist[head];
+        from = queueFrom[head];
+        head++;
+      }
+      if (distance[current] >= 0 && distance[current] <= dist) {
+        continue;
+      }
+      setDistance(current, dist, from);
+      for (int dir = 0; dir < bits.directions; dir++) {
+        int next = bits.connectedNeighbor(current, dir);
+        if (next >= 0 && (distance[next] < 0 || distance[next] > dist + 1)) {
+          queueNode[tail] = next;
+          queueDist[tail] = dist + 1;
+          queueFrom[tail] = current;
+          tail++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Set the distance of a tile, keeping the list of reached tiles
+   * 
+   * @param index Index of a tile
+   * @param dist  The new distance, -1 if unreached
+   * @param from  The tile it was reached from, -1 if none
+   */
+  void setDistance(int index, int dist, int from) {
+    if (distance[index] < 0 && dist >= 0) {
+      reachedPos[index] = reachedCount;
+      reached[reachedCount] = index;
+      reachedCount++;
+    }
+    else if (distance[index] >= 0 && dist < 0) {
+      reachedCount--;
+      int last = reached[reachedCount];
+      reached[reachedPos[index]] = last;
+      reachedPos[last] = reachedPos[index];
+      reachedPos[index] = -1;
+    }
+    distance[index] = dist;
+    parent[index] = from;
+    touch(index);
+  }
+
+  /**
+   * Record that a tile changed in the current update
+   * 
+   * @param index Index of a tile
+   */
+  void touch(int index) {
+    if (!inTouched[index]) {
+      inTouched[index] = true;
+      touched[touchedCount] = index;
+      touchedCount++;
+    }
+  }
+
+  /**
+   * Write the power level of every touched tile into the board, keeping count
+   * of the powered tiles, and tell the listeners what changed
+   */
+  void applyLevels() {
+    for (int i = 0; i < touchedCount; i++) {
+      int index = touched[i];
+      inTouched[index] = false;
+      int before = bits.level(index);
+      int level = levelFor(distance[index]);
+      if (before != level) {
+        bits.setLevel(index, level);
+        if (before == 0) {
+          poweredCount++;
+        }
+        else if (level == 0) {
+          poweredCount--;
+        }
+        for (int j = 0; j < listeners.size(); j++) {
+          listeners.get(j).onPowerChanged(index, level);
+        }
+      }
+    }
+    touchedCount = 0;
+
+    boolean wasSolved = solved;
+    solved = poweredCount == distance.length;
+    if (solved && !wasSolved) {
+      for (int j = 0; j < listeners.size(); j++) {
+        listeners.get(j).onSolved();
+      }
+    }
+  }
+}
@@ -0,0 +1,21 @@
+/**
+ * Represent something that follows the power of a board instead of polling
+ * it, such as the World or a bot. Both methods do nothing unless overridden
+ */
+interface PowerListener {
+
+  /**
+   * Called when the power level of a tile changed
+   * 
+   * @param index Index of the tile (row * width + col)
+   * @param level The new power level, 0 = not powered
+   */
+  default void onPowerChanged(int index, int level) {
+  }
+
+  /**
+   * Called when every tile became powered
+   */
+  default void onSolved() {
+  }
+}
@@ -0,0 +1,403 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Represent a file of boards of one mode and size, read through memory maps
+ * so the Nth board is found without reading or parsing the ones before it.
+ * The file starts with a header: MAGIC, VERSION, the mode, the width, the
+ * height and the number of boards. Every board after it takes recordSize
+ * bytes: its seed, the radius of its power, the wiring of its solution (a
+ * nibble per square tile, a byte per hexagon tile) and how many times each
+ * tile is turned clockwise from the solution (2 bits per square tile, a
+ * nibble per hexagon tile). A file larger than a single map is mapped in
+ * pieces of whole boards
+ */
+class PuzzlePack {
+  static final int MAGIC = 0x4C454150; // "LEAP"
+  static final short VERSION = 1;
+  static final int HEADER_SIZE = 20;
+
+  boolean hex; // If the boards are hexagon boards
+  int width; // The width of the boards
+  int height; // The height of the boards, the rings of a hexagon board
+  int count; // The number of boards
+
+  int tiles; // The number of tiles of a board
+  int wiringBits; // The bits of the wiring of a tile
+  int turnBits; // The bits of the turns of a tile
+  int recordSize; // The bytes of a board
+
+  int boardsPerMap; // The boards in each map
+  MappedByteBuffer[] maps; // The boards, boardsPerMap in each
+
+  /**
+   * The constructor, maps the boards of a file
+   * 
+   * @param file A puzzle pack
+   * @throws IOException If the file can't be read or isn't a puzzle pack
+   */
+  PuzzlePack(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        continue;
+      }
+      header.flip();
+      if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+          || header.getShort() != VERSION) {
+        throw new IOException("Not a puzzle pack: " + file);
+      }
+      byte mode = header.get();
+      this.hex = mode == 1;
+      header.get();
+      this.width = header.getInt();
+      this.height = header.getInt();
+      this.count = header.getInt();
+      if ((mode != 0 && mode != 1) || width <= 0 || height <= 0 || count < 0) {
+        throw new IOException("Bad puzzle pack header: " + file);
+      }
+      layout();
+
+      if (channel.size() < HEADER_SIZE + (long) count * recordSize) {
+        throw new IOException("Puzzle pack cut short: " + file);
+      }
+      this.boardsPerMap = Math.max(1, Integer.MAX_VALUE / recordSize);
+      this.maps = new MappedByteBuffer[(count + boardsPerMap - 1) / boardsPerMap];
+      for (int i = 0; i < maps.length; i++) {
+        int boards = Math.min(boardsPerMap, count - i * boardsPerMap);
+        maps[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            HEADER_SIZE + (long) i * boardsPerMap * recordSize, (long) boards * recordSize);
+      }
+    }
+  }
+
+  /**
+   * Work out the size of a board from the mode and size
+   */
+  void layout() {
+    if (hex) {
+      this.tiles = HexGrid.tileCount(height);
+      this.wiringBits = 8;
+      this.turnBits = 4;
+    }
+    else {
+      this.tiles = width * height;
+      this.wiringBits = 4;
+      this.turnBits = 2;
+    }
+    this.recordSize = 8 + (tiles * wiringBits + 7) / 8 + (tiles * turnBits + 7) / 8;
+  }
+
+  /**
+   * Get the seed of a board
+   * 
+   * @param puzzle Index of a board in the pack
+   * @return An int
+   */
+  int seed(int puzzle) {
+    return map(puzzle).getInt(offset(puzzle));
+  }
+
+  /**
+   * Get the radius of the power of a board
+   * 
+   * @param puzzle Index of a board in the pack
+   * @return An int
+   */
+  int radius(int puzzle) {
+    return map(puzzle).getInt(offset(puzzle) + 4);
+  }
+
+  /**
+   * Get the wiring of a tile in the solution of a board
+   * 
+   * @param puzzle Index of a board in the pack
+   * @param tile   Index of a tile
+   * @return A mask, see BitBoard
+   */
+  int solvedMask(int puzzle, int tile) {
+    return field(map(puzzle), offset(puzzle) + 8, tile, wiringBits);
+  }
+
+  /**
+   * Get how many times a tile of a board is turned clockwise from the solution
+   * 
+   * @param puzzle Index of a board in the pack
+   * @param tile   Index of a tile
+   * @return An int
+   */
+  int turns(int puzzle, int tile) {
+    return field(map(puzzle), offset(puzzle) + 8 + (tiles * wiringBits + 7) / 8, tile,
+        turnBits);
+  }
+
+  /**
+   * Get the wiring of a tile of a board as it is scrambled
+   * 
+   * @param puzzle Index of a board in the pack
+   * @param tile   Index of a tile
+   * @return A mask, see BitBoard
+   */
+  int mask(int puzzle, int tile) {
+    return turn(solvedMask(puzzle, tile), turns(puzzle, tile), hex);
+  }
+
+  /**
+   * Read a board of the pack, scrambled and ready to play. Its mst is read
+   * from the wiring of the solution, in the order of the tiles, and has no
+   * weights
+   * 
+   * @param puzzle Index of a board in the pack
+   * @return A ReadyBoard
+   */
+  ReadyBoard board(int puzzle) {
+    int[] solved = new int[tiles];
+    int[] turns = new int[tiles];
+    for (int i = 0; i < tiles; i++) {
+      solved[i] = solvedMask(puzzle, i);
+      turns[i] = turns(puzzle, i);
+    }
+    return new ReadyBoard(hex, seed(puzzle), width, height, solved, turns, radius(puzzle));
+  }
+
+  /**
+   * Get the map a board is in
+   * 
+   * @param puzzle Index of a board in the pack
+   * @return A MappedByteBuffer
+   */
+  MappedByteBuffer map(int puzzle) {
+    if (puzzle < 0 || puzzle >= count) {
+      throw new IndexOutOfBoundsException("No puzzle " + puzzle + " in a pack of " + count);
+    }
+    return maps[puzzle / boardsPerMap];
+  }
+
+  /**
+   * Get where a board starts in its map
+   * 
+   * @param puzzle Index of a board in the pack
+   * @return An int
+   */
+  int offset(int puzzle) {
+    return (puzzle % boardsPerMap) * recordSize;
+  }
+
+  /**
+   * Read the field of a tile from fields of the given bits packed from the
+   * lowest bit of each byte up
+   * 
+   * @param buffer The bytes
+   * @param start  Where the fields start
+   * @param tile   Index of a tile
+   * @param bits   The bits of a field, 2, 4 or 8
+   * @return An int
+   */
+  static int field(ByteBuffer buffer, int start, int tile, int bits) {
+    int bit = tile * bits;
+    return (buffer.get(start + bit / 8) >>> (bit % 8)) & ((1 << bits) - 1);
+  }
+
+  /**
+   * Write the field of a tile into fields of the given bits, see field()
+   * 
+   * @param buffer The bytes
+   * @param start  Where the fields start
+   * @param tile   Index of a tile
+   * @param bits   The bits of a field, 2, 4 or 8
+   * @param value  The value of the field
+   */
+  static void setField(ByteBuffer buffer, int start, int tile, int bits, int value) {
+    int bit = tile * bits;
+    int index = start + bit / 8;
+    buffer.put(index, (byte) (buffer.get(index) | (value << (bit % 8))));
+  }
+
+  /**
+   * Turn a mask clockwise the given times
+   * 
+   * @param mask  A mask
+   * @param turns The number of turns
+   * @param hex   If it is the mask of a hexagon tile
+   * @return The turned mask
+   */
+  static int turn(int mask, int turns, boolean hex) {
+    for (int i = 0; i < turns; i++) {
+      if (hex) {
+        mask = BitBoard.rotateHex(mask, true);
+      }
+      else {
+        mask = BitBoard.rotateSquare(mask, true);
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Write boards of one mode and size into a new puzzle pack. The pack is
+   * written next to the file and moved over it once complete, so a pack the
+   * file held is kept if writing fails
+   * 
+   * @param file   The file, replaced if it exists
+   * @param boards The boards, as generated
+   * @throws IOException If the file can't be written
+   */
+  static void write(Path file, ArrayList<ReadyBoard> boards) throws IOException {
+    if (boards.isEmpty()) {
+      throw new IllegalArgumentException("A puzzle pack needs a board to know its size");
+    }
+    Path temp = Files.createTempFile(file.toAbsolutePath().getParent(),
+        file.getFileName().toString(), ".tmp");
+    try {
+      writeNew(temp, boards);
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Write boards of one mode and size into an empty file
+   * 
+   * @param file   The file
+   * @param boards The boards, at least one
+   * @throws IOException If the file can't be written
+   */
+  static void writeNew(Path file, ArrayList<ReadyBoard> boards) throws IOException {
+    ReadyBoard first = boards.get(0);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putShort(VERSION);
+      if (first.hex) {
+        header.put((byte) 1);
+      }
+      else {
+        header.put((byte) 0);
+      }
+      header.put((byte) 0);
+      header.putInt(first.width);
+      header.putInt(first.height);
+      header.putInt(0);
+      header.flip();
+      writeFully(channel, header, 0);
+      writeBoards(channel, boards, first.hex, first.width, first.height, 0);
+    }
+  }
+
+  /**
+   * Add boards to the end of a puzzle pack, so a pack too large to generate at
+   * once can be written in batches
+   * 
+   * @param file   A puzzle pack
+   * @param boards The boards, the mode and size of the pack
+   * @throws IOException If the file can't be written or isn't a puzzle pack
+   */
+  static void append(Path file, ArrayList<ReadyBoard> boards) throws IOException {
+    PuzzlePack pack = new PuzzlePack(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      writeBoards(channel, boards, pack.hex, pack.width, pack.height, pack.count);
+    }
+  }
+
+  /**
+   * Write boards after the ones a pack has, then the new number of boards
+   * 
+   * @param channel The open file
+   * @param boards  The boards
+   * @param hex     If the pack holds hexagon boards
+   * @param width   The width of the boards of the pack
+   * @param height  The height of the boards of the pack
+   * @param count   The number of boards the pack has
+   * @throws IOException If the file can't be written
+   */
+  static void writeBoards(FileChannel channel, ArrayList<ReadyBoard> boards, boolean hex,
+      int width, int height, int count) throws IOException {
+    PuzzlePack layout = new PuzzlePack(hex, width, height);
+    int recordSize = layout.recordSize;
+    int wiringStart = 8;
+    int turnStart = 8 + (layout.tiles * layout.wiringBits + 7) / 8;
+
+    // Several boards per write, flushed when the next doesn't fit
+    ByteBuffer out = ByteBuffer.allocate(Math.max(recordSize, 1 << 16));
+    long position = HEADER_SIZE + (long) count * recordSize;
+    for (ReadyBoard board : boards) {
+      if (board.hex != hex || board.width != width || board.height != height) {
+        throw new IllegalArgumentException("A puzzle pack holds boards of one mode and size");
+      }
+      if (out.remaining() < recordSize) {
+        out.flip();
+        position = writeFully(channel, out, position);
+        out.clear();
+      }
+      ByteBuffer record = out.slice();
+      for (int i = 0; i < recordSize; i++) {
+        record.put(i, (byte) 0);
+      }
+      record.putInt(0, board.seed);
+      record.putInt(4, board.radius);
+      int[] solved = board.solvedWiring();
+      for (int i = 0; i < layout.tiles; i++) {
+        int turns = 0;
+        while (turn(solved[i], turns, hex) != board.bits.mask(i)) {
+          turns++;
+          if (turns == board.bits.directions) {
+            throw new IllegalArgumentException(
+                "Tile " + i + " of board " + board.seed + " isn't a turn of its solution");
+          }
+        }
+        setField(record, wiringStart, i, layout.wiringBits, solved[i]);
+        setField(record, turnStart, i, layout.turnBits, turns);
+      }
+      out.position(out.position() + recordSize);
+    }
+    out.flip();
+    writeFully(channel, out, position);
+
+    ByteBuffer total = ByteBuffer.allocate(4);
+    total.putInt(count + boards.size());
+    total.flip();
+    writeFully(channel, total, HEADER_SIZE - 4);
+  }
+
+  /**
+   * The constructor of the layout of a pack, without a file
+   * 
+   * @param hex    If the boards are hexagon boards
+   * @param width  The width of the boards
+   * @param height The height of the boards, the rings of a hexagon board
+   */
+  PuzzlePack(boolean hex, int width, int height) {
+    this.hex = hex;
+    this.width = width;
+    this.height = height;
+    layout();
+  }
+
+  /**
+   * Write every byte left in a buffer at a position of a file
+   * 
+   * @param channel  The open file
+   * @param buffer   The bytes
+   * @param position Where to write them
+   * @return The position after them
+   * @throws IOException If the file can't be written
+   */
+  static long writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    return position;
+  }
+}
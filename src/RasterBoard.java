@@ -0,0 +1,207 @@
+import java.awt.Color;
+import java.awt.Polygon;
+import java.util.Arrays;
+
+import javalib.worldimages.ComputedPixelImage;
+
+/**
+ * Represent a square board drawn into one image, placed on the World Scene
+ * once instead of an image per tile. Each tile is copied into the image from
+ * a sprite rasterized the first time it is needed at the current size: the
+ * rectangles of one color that make it up, (x, y, w, h, color) each, indexed
+ * by its power level, the power station and its mask as in the sprite cache
+ * of LightEmAll. A tile that changed is copied again on its own
+ */
+class RasterBoard {
+  // The wire color of each power level, 0 = not powered
+  static final Color[] WIRE_COLORS = { Color.GRAY, new Color(255, 153, 0),
+      new Color(255, 179, 0), new Color(255, 204, 0), new Color(255, 230, 0),
+      new Color(255, 255, 0) };
+  static final Color STATION_COLOR = new Color(0, 255, 255);
+  static final Color STAR_OUTLINE_COLOR = new Color(255, 128, 0);
+  static final Color CLEAR = new Color(0, 0, 0, 0);
+
+  // The colors of the sprites: the tile, a wire of each power level, the star
+  static final Color[] PALETTE = { Color.DARK_GRAY, WIRE_COLORS[0], WIRE_COLORS[1],
+      WIRE_COLORS[2], WIRE_COLORS[3], WIRE_COLORS[4], WIRE_COLORS[5], STATION_COLOR,
+      STAR_OUTLINE_COLOR };
+  static final int TILE = 0;
+  static final int STAR = 7;
+  static final int STAR_OUTLINE = 8;
+
+  int width; // The width of the image in pixels
+  int height; // The height of the image in pixels
+  ComputedPixelImage image;
+
+  int size = -1; // The size of a tile in pixels
+  int wireWidth = -1; // The width of a wire in pixels
+  int[][] sprites = new int[2 * 6 * 16][];
+
+  /**
+   * The constructor, an empty image
+   * 
+   * @param width  The width of the image in pixels
+   * @param height The height of the image in pixels
+   */
+  RasterBoard(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.image = new ComputedPixelImage(width, height);
+  }
+
+  /**
+   * Set the size tiles are drawn at, dropping the sprites of another size
+   * 
+   * @param size      The size of a tile in pixels
+   * @param wireWidth The width of a wire in pixels
+   */
+  void useSize(int size, int wireWidth) {
+    if (size != this.size || wireWidth != this.wireWidth) {
+      this.sprites = new int[2 * 6 * 16][];
+      this.size = size;
+      this.wireWidth = wireWidth;
+    }
+  }
+
+  /**
+   * Make the whole image see-through
+   */
+  void clear() {
+    image.setPixels(0, 0, width, height, CLEAR);
+  }
+
+  /**
+   * Copy the sprite of a tile into the image, cut to the image
+   * 
+   * @param x    The x of the top left corner of the tile
+   * @param y    The y of the top left corner of the tile
+   * @param key  The power level, plus 6 if the power station is on the tile
+   * @param mask The wires of the tile, see BitBoard
+   */
+  void drawTile(int x, int y, int key, int mask) {
+    int[] sprite = sprite(key, mask);
+    for (int i = 0; i < sprite.length; i += 5) {
+      int left = Math.max(0, x + sprite[i]);
+      int top = Math.max(0, y + sprite[i + 1]);
+      int right = Math.min(width, x + sprite[i] + sprite[i + 2]);
+      int bottom = Math.min(height, y + sprite[i + 1] + sprite[i + 3]);
+      if (left < right && top < bottom) {
+        image.setPixels(left, top, right - left, bottom - top, PALETTE[sprite[i + 4]]);
+      }
+    }
+  }
+
+  /**
+   * Get the sprite of a tile, rasterizing it the first time it is asked for.
+   * It is drawn as LightEmAll.squareTileImage() draws it: the tile, a square of
+   * wire in the middle, half a tile of wire to each side it connects and the
+   * star of the power station on top
+   * 
+   * @param key  The power level, plus 6 if the power station is on the tile
+   * @param mask The wires of the tile, see BitBoard
+   * @return The rectangles of the sprite, 5 ints each
+   */
+  int[] sprite(int key, int mask) {
+    int index = key * 16 + mask;
+    if (sprites[index] != null) {
+      return sprites[index];
+    }
+    int wire = 1 + key % 6;
+    int half = (size + 1) / 2;
+    int middle = (size - wireWidth) / 2;
+    int[] rects = new int[5 * 6];
+    int length = 0;
+    length = add(rects, length, 0, 0, size, size, TILE);
+    length = add(rects, length, middle, middle, wireWidth, wireWidth, wire);
+    if ((mask & BitBoard.TOP) != 0) {
+      length = add(rects, length, middle, 0, wireWidth, half, wire);
+    }
+    if ((mask & BitBoard.RIGHT) != 0) {
+      length = add(rects, length, size - half, middle, half, wireWidth, wire);
+    }
+    if ((mask & BitBoard.BOTTOM) != 0) {
+      length = add(rects, length, middle, size - half, wireWidth, half, wire);
+    }
+    if ((mask & BitBoard.LEFT) != 0) {
+      length = add(rects, length, 0, middle, half, wireWidth, wire);
+    }
+    if (key >= 6) {
+      int[] star = star(size / 2, size / 2, size / 3);
+      rects = Arrays.copyOf(rects, length + star.length);
+      System.arraycopy(star, 0, rects, length, star.length);
+      length += star.length;
+    }
+    sprites[index] = Arrays.copyOf(rects, length);
+    return sprites[index];
+  }
+
+  /**
+   * Put a rectangle in an array of rectangles
+   * 
+   * @param rects  The rectangles, with room for one more
+   * @param length The ints used
+   * @param x      The x of the rectangle
+   * @param y      The y of the rectangle
+   * @param w      The width of the rectangle
+   * @param h      The height of the rectangle
+   * @param color  Index of the color in PALETTE
+   * @return The ints used after it
+   */
+  static int add(int[] rects, int length, int x, int y, int w, int h, int color) {
+    rects[length] = x;
+    rects[length + 1] = y;
+    rects[length + 2] = w;
+    rects[length + 3] = h;
+    rects[length + 4] = color;
+    return length + 5;
+  }
+
+  /**
+   * Rasterize the star of the power station, 7 points around a center, as
+   * runs of one pixel high: STAR inside, STAR_OUTLINE on its edge
+   * 
+   * @param centerX The x of the center
+   * @param centerY The y of the center
+   * @param radius  The distance from the center to a point
+   * @return The rectangles of the star, 5 ints each
+   */
+  static int[] star(int centerX, int centerY, int radius) {
+    Polygon star = new Polygon();
+    for (int i = 0; i < 14; i++) {
+      double distance = radius;
+      if (i % 2 == 1) {
+        distance = radius / 2.0;
+      }
+      double angle = Math.PI * i / 7 - Math.PI / 2;
+      star.addPoint((int) Math.round(centerX + distance * Math.cos(angle)),
+          (int) Math.round(centerY + distance * Math.sin(angle)));
+    }
+    int[] rects = new int[5 * 16];
+    int length = 0;
+    for (int y = centerY - radius; y <= centerY + radius; y++) {
+      int start = 0;
+      int color = -1;
+      for (int x = centerX - radius; x <= centerX + radius + 1; x++) {
+        int next = -1;
+        if (star.contains(x + .5, y + .5)) {
+          next = STAR;
+          if (!star.contains(x - .5, y + .5) || !star.contains(x + 1.5, y + .5)
+              || !star.contains(x + .5, y - .5) || !star.contains(x + .5, y + 1.5)) {
+            next = STAR_OUTLINE;
+          }
+        }
+        if (next != color) {
+          if (color >= 0) {
+            if (length + 5 > rects.length) {
+              rects = Arrays.copyOf(rects, 2 * rects.length);
+            }
+            length = add(rects, length, start, y, x - start, 1, color);
+          }
+          start = x;
+          color = next;
+        }
+      }
+    }
+    return Arrays.copyOf(rects, length);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Represent a board generated ahead of time and ready to play: its seed, its
+ * minimum spanning tree, its wiring scrambled the same way as at the start of
+ * a game, and the radius of the power. Nothing in it is rendered, so it can be
+ * made on any thread and handed to the World afterwards
+ */
+class ReadyBoard {
+  boolean hex; // If it is a hexagon board
+  int seed; // The random seed it was made from
+  int width; // The width of the board
+  int height; // The height of the board, the rings of a hexagon board
+
+  HexGrid grid; // The layout of a hexagon board, null for a square board
+  BitBoard bits; // The scrambled wiring, no tile powered
+
+  // The edges of the minimum spanning tree, in the order Kruskal added them
+  int[] mstFrom;
+  int[] mstTo;
+  int[] mstWeight;
+  int mstSize;
+
+  TreeAdjacency adjacency; // The minimum spanning tree as adjacency
+  int radius; // The radius of the power
+
+  /**
+   * The constructor, generates the board for the seed
+   * 
+   * @param hex    If it is a hexagon board
+   * @param seed   The random seed
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   */
+  ReadyBoard(boolean hex, int seed, int width, int height) {
+    this.hex = hex;
+    this.seed = seed;
+    this.width = width;
+    this.height = height;
+
+    LightEmAllEngine engine = new LightEmAllEngine();
+    if (hex) {
+      engine.generateHex(seed, height);
+    }
+    else {
+      engine.generate(seed, width, height);
+    }
+    engine.scramble();
+    this.grid = engine.grid;
+    this.bits = engine.bits;
+    this.mstFrom = engine.mstFrom;
+    this.mstTo = engine.mstTo;
+    this.mstWeight = engine.mstWeight;
+    this.mstSize = engine.mstSize;
+    this.adjacency = engine.adjacency;
+    this.radius = engine.radius;
+    bits.clearChanged();
+  }
+
+  /**
+   * The constructor of a board read back from a PuzzlePack. The mst is read
+   * from the wiring of the solution, in the order of the tiles, with no weights.
+   * A wiring that isn't a tree of the board is an IllegalArgumentException
+   * 
+   * @param hex    If it is a hexagon board
+   * @param seed   The random seed it was made from
+   * @param width  The width of the board
+   * @param height The height of the board, the rings of a hexagon board
+   * @param solved index -> the wiring of the solution
+   * @param turns  index -> the clockwise turns from the solution to the board
+   * @param radius The radius of the power
+   */
+  ReadyBoard(boolean hex, int seed, int width, int height, int[] solved, int[] turns,
+      int radius) {
+    this.hex = hex;
+    this.seed = seed;
+    this.width = width;
+    this.height = height;
+    this.radius = radius;
+
+    if (hex) {
+      this.grid = new HexGrid(height);
+      this.bits = new BitBoard(grid);
+    }
+    else {
+      this.bits = new BitBoard(width, height);
+    }
+    int n = bits.size();
+    this.mstFrom = new int[n];
+    this.mstTo = new int[n];
+    this.mstWeight = new int[n];
+    for (int i = 0; i < n; i++) {
+      if ((solved[i] >> bits.directions) != 0 || turns[i] < 0
+          || turns[i] >= bits.directions) {
+        throw new IllegalArgumentException("Tile " + i + " of board " + seed
+            + " has a wiring or turns no tile has");
+      }
+      for (int dir = 0; dir < bits.directions; dir++) {
+        if ((solved[i] & (1 << dir)) != 0) {
+          int next = bits.neighbor(i, dir);
+          if (next < 0 || (solved[next] & (1 << bits.oppositeOf(dir))) == 0) {
+            throw new IllegalArgumentException("Tile " + i + " of board " + seed
+                + " is wired to no tile");
+          }
+          if (next > i) {
+            if (mstSize == n - 1) {
+              throw new IllegalArgumentException("The solution of board " + seed
+                  + " isn't a tree");
+            }
+            mstFrom[mstSize] = i;
+            mstTo[mstSize] = next;
+            mstSize++;
+          }
+        }
+      }
+      bits.setMask(i, PuzzlePack.turn(solved[i], turns[i], hex));
+    }
+    if (mstSize != n - 1) {
+      throw new IllegalArgumentException("The solution of board " + seed + " isn't a tree");
+    }
+    this.adjacency = new TreeAdjacency(n, mstFrom, mstTo, mstSize);
+    bits.clearChanged();
+  }
+
+  /**
+   * Get the wiring of the solution, the edges of the mst
+   * 
+   * @return index -> mask, see BitBoard
+   */
+  int[] solvedWiring() {
+    int[] solved = new int[bits.size()];
+    for (int i = 0; i < mstSize; i++) {
+      for (int dir = 0; dir < bits.directions; dir++) {
+        if (bits.neighbor(mstFrom[i], dir) == mstTo[i]) {
+          solved[mstFrom[i]] |= 1 << dir;
+          solved[mstTo[i]] |= 1 << bits.oppositeOf(dir);
+        }
+      }
+    }
+    return solved;
+  }
+}
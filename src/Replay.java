@@ -0,0 +1,129 @@
+/**
+ * Represent a game played again from its MoveLog, on a BitBoard and a
+ * PowerEngine with nothing rendered, undoing and redoing with an UndoStack
+ * as the game did. step() plays one move with the power updated after it;
+ * fastForward() plays up to a move turning wires and moving the power
+ * station only, and works the power out once at the end, since a move never
+ * depends on the power
+ */
+class Replay {
+  MoveLog log; // The moves
+  BitBoard bits; // The board as it is after played moves
+  PowerEngine power; // The power of the board
+  int station = 0; // Index of the power station
+  UndoStack undoStack = new UndoStack(); // The moves to undo and redo
+  int played = 0; // The moves played
+  int offset = 0; // Index in the log of the first byte of the next move
+
+  /**
+   * The constructor, the board as the game started
+   * 
+   * @param log The moves of a game
+   */
+  Replay(MoveLog log) {
+    this.log = log;
+    restart();
+  }
+
+  /**
+   * Go back to the start of the game: the board generated from the seed,
+   * scrambled, and powered from the first tile
+   */
+  void restart() {
+    LightEmAllEngine engine = new LightEmAllEngine();
+    if (log.hex) {
+      engine.newHexGame(log.seed, log.height);
+    }
+    else {
+      engine.newGame(log.seed, log.width, log.height);
+    }
+    this.bits = engine.bits;
+    this.power = engine.power;
+    this.station = 0;
+    undoStack.clear();
+    this.played = 0;
+    this.offset = 0;
+  }
+
+  /**
+   * Play the next move and update the power
+   * 
+   * @return If there was a move to play
+   */
+  boolean step() {
+    if (played == log.moves) {
+      return false;
+    }
+    play(next(), power);
+    return true;
+  }
+
+  /**
+   * Play the game up to the given move, from the start if it is behind, and
+   * update the power once
+   * 
+   * @param move The number of moves played after, up to the moves of the log
+   */
+  void fastForward(int move) {
+    if (move < played) {
+      restart();
+    }
+    int last = Math.min(move, log.moves);
+    while (played < last) {
+      play(next(), null);
+    }
+    power.recompute(station);
+  }
+
+  /**
+   * Play a move the way the game did
+   * 
+   * @param move   A move, encoded as in MoveLog
+   * @param update The power of the board, null to leave it
+   */
+  void play(int move, PowerEngine update) {
+    int op = move & 3;
+    if (op == MoveLog.ROTATE) {
+      bits.rotate(move >>> 2, true);
+      if (update != null) {
+        update.afterRotation(move >>> 2);
+      }
+      undoStack.rotated(move >>> 2);
+    }
+    else if (op == MoveLog.MOVE_POWER) {
+      int target = bits.connectedNeighbor(station, move >>> 2);
+      if (target >= 0) {
+        undoStack.moved(station);
+        station = target;
+        if (update != null) {
+          update.afterStationMove(station);
+        }
+      }
+    }
+    else if (op == MoveLog.UNDO && undoStack.canUndo()) {
+      station = undoStack.undo(bits, update, station);
+    }
+    else if (op == MoveLog.REDO && undoStack.canRedo()) {
+      station = undoStack.redo(bits, update, station);
+    }
+  }
+
+  /**
+   * Read the next move of the log
+   * 
+   * @return The move, encoded as in MoveLog
+   */
+  int next() {
+    int move = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = log.bytes[offset];
+      offset++;
+      move |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    played++;
+    return move;
+  }
+}
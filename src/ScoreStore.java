@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * Represent the high scores of every mode and size of board, the top scores
+ * of each in a TopScores. Scores are appended to a file as they come in, and
+ * the file is read the first time a score is asked for or added, not when the
+ * game starts. Once the file holds COMPACT_AFTER scores no board keeps, it is
+ * rewritten with only the kept ones. The file starts with a header of
+ * HEADER_SIZE bytes, MAGIC and VERSION, then each score is a record of
+ * RECORD_SIZE bytes: the mode, the width, the height and the score. The
+ * scores of a board are found by key(), made from the fields of its records
+ * and from nothing else, so the file reads the same whatever other classes
+ * key boards by. A record cut short by a crash is dropped when the file is
+ * read, and a file written before the header is read as records and
+ * rewritten with it
+ */
+class ScoreStore {
+  static final int MAGIC = 0x4C454853; // "LEHS"
+  static final short VERSION = 1;
+  static final int HEADER_SIZE = 6;
+  static final int TOP = 10;
+  static final int RECORD_SIZE = 13;
+  static final int COMPACT_AFTER = 256;
+
+  int top; // The scores kept for each mode and size
+  Path file; // Where the scores are saved, null to keep them in memory only
+  boolean loaded = false; // If the file was read
+
+  HashMap<String, TopScores> boards = new HashMap<String, TopScores>(); // mode and size -> scores
+  HashMap<String, int[]> shapes = new HashMap<String, int[]>(); // mode and size -> {hex, w, h}
+  int best = 0; // The highest score of every board, 0 if none
+  int records = 0; // The scores in the file
+  int kept = 0; // The scores kept over every board
+
+  /**
+   * The constructor, nothing is read until a score is needed
+   * 
+   * @param file Where the scores are saved, null to keep them in memory only
+   * @param top  The scores to keep for each mode and size
+   */
+  ScoreStore(Path file, int top) {
+    this.file = file;
+    this.top = top;
+  }
+
+  /**
+   * The constructor, keeping TOP scores for each mode and size
+   * 
+   * @param file Where the scores are saved, null to keep them in memory only
+   */
+  ScoreStore(Path file) {
+    this(file, TOP);
+  }
+
+  /**
+   * Get the highest score of every board
+   * 
+   * @return An int, 0 if no score was added
+   */
+  int best() {
+    load();
+    return best;
+  }
+
+  /**
+   * Get the highest score of a mode and size
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @return An int, 0 if no score was added
+   */
+  int best(boolean hex, int width, int height) {
+    load();
+    TopScores scores = boards.get(key(hex, width, height));
+    if (scores == null) {
+      return 0;
+    }
+    return scores.max;
+  }
+
+  /**
+   * Get the scores kept for a mode and size
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @return The scores, highest first
+   */
+  int[] top(boolean hex, int width, int height) {
+    load();
+    TopScores scores = boards.get(key(hex, width, height));
+    if (scores == null) {
+      return new int[0];
+    }
+    return scores.sorted();
+  }
+
+  /**
+   * Add the score of a game, saved to the file if a board keeps it. If the
+   * file can't be written, the scores are kept in memory from then on
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @param score  The score
+   */
+  void add(boolean hex, int width, int height, int score) {
+    load();
+    if (!keep(hex, width, height, score) || file == null) {
+      return;
+    }
+    try {
+      ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        if (channel.size() == 0) {
+          putHeader(record);
+        }
+        put(record, hex, width, height, score);
+        record.flip();
+        while (record.hasRemaining()) {
+          channel.write(record);
+        }
+      }
+      records++;
+      if (records - kept >= COMPACT_AFTER) {
+        compact();
+      }
+    }
+    catch (IOException e) {
+      System.err.println("High scores are not saved: " + e.getMessage());
+      file = null;
+    }
+  }
+
+  /**
+   * Keep a score in the TopScores of its board
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @param score  The score
+   * @return If the board kept the score
+   */
+  boolean keep(boolean hex, int width, int height, int score) {
+    String key = key(hex, width, height);
+    TopScores scores = boards.get(key);
+    if (scores == null) {
+      scores = new TopScores(top);
+      boards.put(key, scores);
+      if (hex) {
+        shapes.put(key, new int[] { 1, width, height });
+      }
+      else {
+        shapes.put(key, new int[] { 0, width, height });
+      }
+    }
+    int before = scores.size;
+    if (!scores.add(score)) {
+      return false;
+    }
+    kept += scores.size - before;
+    if (score > best) {
+      best = score;
+    }
+    return true;
+  }
+
+  /**
+   * Read the file the first time it is needed. If it can't be read, the game
+   * goes on with no scores and doesn't write over it
+   */
+  void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    if (file == null || !Files.exists(file)) {
+      return;
+    }
+    try {
+      ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+      boolean header = bytes.remaining() >= HEADER_SIZE && bytes.getInt(0) == MAGIC;
+      if (header && bytes.getShort(4) != VERSION) {
+        throw new IOException("Not a score file of version " + VERSION + ": " + file);
+      }
+      if (header) {
+        bytes.position(HEADER_SIZE);
+      }
+      while (bytes.remaining() >= RECORD_SIZE) {
+        boolean hex = bytes.get() == 1;
+        int width = bytes.getInt();
+        int height = bytes.getInt();
+        keep(hex, width, height, bytes.getInt());
+        records++;
+      }
+      if (!header || bytes.hasRemaining()) {
+        // the header goes first, and the next record would be appended after
+        // the cut one
+        compact();
+      }
+    }
+    catch (IOException e) {
+      System.err.println("High scores are not loaded: " + e.getMessage());
+      file = null;
+    }
+  }
+
+  /**
+   * Rewrite the file with only the scores kept, into a new file moved over
+   * the old one so a crash leaves one of them whole
+   * 
+   * @throws IOException If the file can't be written
+   */
+  void compact() throws IOException {
+    ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + kept * RECORD_SIZE);
+    putHeader(out);
+    for (String key : boards.keySet()) {
+      int[] shape = shapes.get(key);
+      TopScores scores = boards.get(key);
+      for (int i = 0; i < scores.size; i++) {
+        put(out, shape[0] == 1, shape[1], shape[2], scores.heap[i]);
+      }
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.write(temp, out.array());
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    records = kept;
+  }
+
+  /**
+   * Get the key of the scores of a mode and size
+   * 
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @return A String
+   */
+  static String key(boolean hex, int width, int height) {
+    if (hex) {
+      return "hex " + width + " " + height;
+    }
+    return "square " + width + " " + height;
+  }
+
+  /**
+   * Put the header of the file
+   * 
+   * @param buffer Where to put it
+   */
+  static void putHeader(ByteBuffer buffer) {
+    buffer.putInt(MAGIC);
+    buffer.putShort(VERSION);
+  }
+
+  /**
+   * Put the record of a score
+   * 
+   * @param buffer Where to put it
+   * @param hex    If it is a hexagon board
+   * @param width  The width of the board
+   * @param height The height of the board
+   * @param score  The score
+   */
+  static void put(ByteBuffer buffer, boolean hex, int width, int height, int score) {
+    if (hex) {
+      buffer.put((byte) 1);
+    }
+    else {
+      buffer.put((byte) 0);
+    }
+    buffer.putInt(width);
+    buffer.putInt(height);
+    buffer.putInt(score);
+  }
+}
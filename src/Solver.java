@@ -0,0 +1,631 @@
+/**
+ * Solve a scrambled board: find how many times to turn each tile clockwise
+ * so that every wire meets a wire of its neighbor, no wire points off the
+ * board and the wiring joins every tile within the radius of the power, with
+ * as few clicks as possible. Every tile keeps the set of turns it may still
+ * take; a turn is dropped once a neighbor can't match it, and the drops spread
+ * until nothing changes. Wires both ends are forced into are joined in a
+ * union find, so a wire that would close a loop, or close off a part of the
+ * board with no open end left, is dropped too. What is left is searched depth
+ * first with branch and bound on the clicks, undoing the drops and joins of a
+ * branch from a trail, so large boards can't overflow the stack. A solution
+ * out of the radius is kept only until one within it is found. Proving no
+ * better solution is left can take far longer than finding one, so once a
+ * solution is found the search stops after guessLimit more guesses
+ */
+class Solver {
+  BitBoard bits; // The scrambled board, left unchanged
+  int n; // The number of tiles
+  int sides; // The number of sides of a tile
+  int radius; // The radius of the power the solution has to fit in
+
+  int[] rotated; // index * sides + turns -> the mask after that many clockwise turns
+  int[] domain; // index -> bit k set if the tile may still be turned k times
+  int lowerBound; // The clicks of the cheapest turns left, summed over every tile
+
+  int[] trailIndex; // the tiles whose domain changed, undone on backtracking
+  int[] trailDomain; // the domain each of them had before
+  int trailSize;
+
+  int[] root; // index -> parent in the union find of joined wires, -1 for a root
+  int[] size; // root -> the number of tiles joined to it
+  int[] open; // root -> the wire ends of its tiles not joined yet
+  int[] joined; // index -> the directions whose wire is joined
+  int[] joinTile; // the tiles a wire was joined from, undone on backtracking
+  int[] joinDir; // the direction of each joined wire
+  int[] joinRoot; // the root each join hung under another
+  int joinCount;
+
+  int[] stack; // the tiles whose neighbors have to be checked again
+  boolean[] stacked;
+  int stackSize;
+
+  int[] decisionTile; // depth -> the tile turned on a guess
+  int[] decisionLeft; // depth -> the turns of it not tried yet
+  int[] decisionMark; // depth -> the trail size before the guess
+  int[] decisionJoins; // depth -> the joins before the guess
+
+  int[] distance; // index -> distance in the BFS measuring a solution
+  int[] queue; // the queue of that BFS
+  int[] reach; // index -> distance over the joined wires, -1 outside a BFS
+
+  static final int GUESS_LIMIT = 1000;
+
+  int[] turns; // index -> clockwise turns of the best solution, null if none
+  int clicks = -1; // The clicks of the best solution, -1 if none
+  int forced = 0; // The tiles fixed before the first guess
+  int guesses = 0; // The guesses tried, how hard the board is
+  int guessLimit = GUESS_LIMIT; // The guesses to look for a better solution with
+  boolean optimal = true; // If no better solution is left
+  int solvedRadius = -1; // The radius of the power on the solved wiring
+  // If a solution out of the radius was seen, from then on a guess is undone
+  // as soon as the wires it joined are too long already
+  boolean radiusBound = false;
+
+  /**
+   * The constructor
+   * 
+   * @param bits   The scrambled board, square or hexagon
+   * @param radius The radius of the power
+   */
+  Solver(BitBoard bits, int radius) {
+    this.bits = bits;
+    this.n = bits.size();
+    this.sides = bits.directions;
+    this.radius = radius;
+    rotated = new int[n * sides];
+    domain = new int[n];
+    trailIndex = new int[n * sides];
+    trailDomain = new int[n * sides];
+    root = new int[n];
+    size = new int[n];
+    open = new int[n];
+    joined = new int[n];
+    joinTile = new int[n];
+    joinDir = new int[n];
+    joinRoot = new int[n];
+    stack = new int[n];
+    stacked = new boolean[n];
+    decisionTile = new int[n];
+    decisionLeft = new int[n];
+    decisionMark = new int[n];
+    decisionJoins = new int[n];
+    distance = new int[n];
+    queue = new int[n];
+    reach = new int[n];
+    for (int i = 0; i < n; i++) {
+      reach[i] = -1;
+    }
+  }
+
+  /**
+   * Solve the board, keeping the best solution found in turns: within the
+   * radius if there is one, then with the fewest clicks
+   * 
+   * @return If the board can be solved, see withinRadius() for the power
+   */
+  boolean solve() {
+    trailSize = 0;
+    joinCount = 0;
+    lowerBound = 0;
+    for (int i = 0; i < n; i++) {
+      int mask = bits.mask(i);
+      root[i] = -1;
+      size[i] = 1;
+      open[i] = Integer.bitCount(mask);
+      joined[i] = 0;
+      domain[i] = 0;
+      // Turns that give a mask seen before cost more for the same wiring
+      for (int k = 0; k < sides; k++) {
+        rotated[i * sides + k] = mask;
+        boolean seen = false;
+        for (int j = 0; j < k; j++) {
+          if (rotated[i * sides + j] == mask) {
+            seen = true;
+          }
+        }
+        if (!seen) {
+          domain[i] |= 1 << k;
+        }
+        mask = rotateOnce(mask);
+      }
+    }
+
+    // The clicks of the best solution within the radius
+    int best = Integer.MAX_VALUE;
+    int stopAt = Integer.MAX_VALUE;
+    int depth = 0;
+    boolean consistent = true;
+    for (int i = 0; i < n && consistent; i++) {
+      consistent = revise(i) && joinForced(i);
+    }
+    consistent = consistent && propagate();
+    clearStack();
+    for (int i = 0; i < n; i++) {
+      if (Integer.bitCount(domain[i]) == 1) {
+        forced++;
+      }
+    }
+
+    while (true) {
+      if (guesses >= stopAt) {
+        optimal = false;
+        break;
+      }
+      if (consistent && lowerBound < best) {
+        int tile = pickTile(depth);
+        if (tile < 0) {
+          int treeRadius = treeRadius();
+          radiusBound = radiusBound || treeRadius > radius;
+          if (treeRadius >= 0 && better(treeRadius)) {
+            saveSolution(treeRadius);
+            if (treeRadius <= radius) {
+              best = lowerBound;
+            }
+            if (stopAt == Integer.MAX_VALUE) {
+              stopAt = guesses + guessLimit;
+            }
+          }
+        }
+        else {
+          decisionTile[depth] = tile;
+          decisionLeft[depth] = domain[tile];
+          decisionMark[depth] = trailSize;
+          decisionJoins[depth] = joinCount;
+          depth++;
+        }
+      }
+
+      // Try the next turn of the latest guess, the cheapest first
+      consistent = false;
+      while (depth > 0 && !consistent) {
+        int top = depth - 1;
+        undo(decisionMark[top], decisionJoins[top]);
+        if (decisionLeft[top] == 0) {
+          depth--;
+        }
+        else {
+          int k = Integer.numberOfTrailingZeros(decisionLeft[top]);
+          decisionLeft[top] &= decisionLeft[top] - 1;
+          guesses++;
+          setDomain(decisionTile[top], 1 << k);
+          push(decisionTile[top]);
+          consistent = joinForced(decisionTile[top]) && propagate()
+              && (!radiusBound || joinedDiameter(decisionTile[top]) <= 2 * radius);
+          clearStack();
+        }
+      }
+      if (depth == 0 && !consistent) {
+        break;
+      }
+    }
+    return turns != null;
+  }
+
+  /**
+   * Rotate a mask of this board by one side, clockwise
+   * 
+   * @param mask A mask
+   * @return The rotated mask
+   */
+  int rotateOnce(int mask) {
+    if (sides == 6) {
+      return BitBoard.rotateHex(mask, true);
+    }
+    return BitBoard.rotateSquare(mask, true);
+  }
+
+  /**
+   * Drop the turns no neighbor can match until nothing changes
+   * 
+   * @return False if a tile has no turn left
+   */
+  boolean propagate() {
+    while (stackSize > 0) {
+      stackSize--;
+      int current = stack[stackSize];
+      stacked[current] = false;
+      for (int d = 0; d < sides; d++) {
+        int next = bits.neighbor(current, d);
+        if (next >= 0 && !revise(next)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Drop the turns of a tile that a neighbor, or the edge of the board, can't
+   * match
+   * 
+   * @param index Index of a tile
+   * @return False if the tile has no turn left
+   */
+  boolean revise(int index) {
+    // For each side, if some turn of the neighbor wires towards this tile,
+    // and if some turn of it doesn't
+    int mayWire = 0;
+    int mayNotWire = 0;
+    int x = find(index);
+    for (int d = 0; d < sides; d++) {
+      int next = bits.neighbor(index, d);
+      if (next < 0) {
+        mayNotWire |= 1 << d;
+        continue;
+      }
+      int back = bits.oppositeOf(d);
+      boolean closes = false;
+      if ((joined[index] & (1 << d)) == 0) {
+        int y = find(next);
+        closes = x == y || (open[x] + open[y] == 2 && size[x] + size[y] < n);
+      }
+      for (int left = domain[next]; left != 0; left &= left - 1) {
+        int k = Integer.numberOfTrailingZeros(left);
+        if ((rotated[next * sides + k] & (1 << back)) != 0 && !closes) {
+          mayWire |= 1 << d;
+        }
+        else {
+          mayNotWire |= 1 << d;
+        }
+      }
+    }
+
+    int kept = 0;
+    for (int left = domain[index]; left != 0; left &= left - 1) {
+      int k = Integer.numberOfTrailingZeros(left);
+      int mask = rotated[index * sides + k];
+      int all = (1 << sides) - 1;
+      if ((mask & ~mayWire) == 0 && (~mask & all & ~mayNotWire) == 0) {
+        kept |= 1 << k;
+      }
+    }
+    if (kept == domain[index]) {
+      return kept != 0;
+    }
+    setDomain(index, kept);
+    push(index);
+    return kept != 0 && joinForced(index);
+  }
+
+  /**
+   * Join the wires of a tile that both ends are forced into
+   * 
+   * @param index Index of a tile
+   * @return False if a join closes a loop or a part of the board
+   */
+  boolean joinForced(int index) {
+    int forcedWires = forcedWires(index);
+    for (int d = 0; d < sides; d++) {
+      int next = bits.neighbor(index, d);
+      if ((forcedWires & ~joined[index] & (1 << d)) != 0 && next >= 0
+          && (forcedWires(next) & (1 << bits.oppositeOf(d))) != 0) {
+        if (!join(index, d, next)) {
+          return false;
+        }
+        push(index);
+        push(next);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the wires every turn left of a tile has
+   * 
+   * @param index Index of a tile
+   * @return A mask
+   */
+  int forcedWires(int index) {
+    int wires = (1 << sides) - 1;
+    for (int left = domain[index]; left != 0; left &= left - 1) {
+      wires &= rotated[index * sides + Integer.numberOfTrailingZeros(left)];
+    }
+    return wires;
+  }
+
+  /**
+   * Join the wire from a tile to its neighbor, keeping it on the trail
+   * 
+   * @param index     Index of a tile
+   * @param direction The direction of the wire
+   * @param next      Index of the neighbor
+   * @return False if it closes a loop or a part of the board
+   */
+  boolean join(int index, int direction, int next) {
+    int x = find(index);
+    int y = find(next);
+    if (x == y) {
+      return false;
+    }
+    // The smaller part hangs under the larger, so find() stays short
+    if (size[x] < size[y]) {
+      int swap = x;
+      x = y;
+      y = swap;
+    }
+    root[y] = x;
+    size[x] += size[y];
+    open[x] += open[y] - 2;
+    joined[index] |= 1 << direction;
+    joined[next] |= 1 << bits.oppositeOf(direction);
+    joinTile[joinCount] = index;
+    joinDir[joinCount] = direction;
+    joinRoot[joinCount] = y;
+    joinCount++;
+    return open[x] > 0 || size[x] == n;
+  }
+
+  /**
+   * Get the root of the part of the board a tile is joined to
+   * 
+   * @param index Index of a tile
+   * @return Index of the root
+   */
+  int find(int index) {
+    while (root[index] >= 0) {
+      index = root[index];
+    }
+    return index;
+  }
+
+  /**
+   * Change the domain of a tile, keeping it on the trail
+   * 
+   * @param index Index of a tile
+   * @param turns The turns it may still take
+   */
+  void setDomain(int index, int turns) {
+    trailIndex[trailSize] = index;
+    trailDomain[trailSize] = domain[index];
+    trailSize++;
+    lowerBound += cheapest(turns) - cheapest(domain[index]);
+    domain[index] = turns;
+  }
+
+  /**
+   * Undo every domain change and join after the given trail sizes
+   * 
+   * @param mark  A trail size
+   * @param joins A number of joins
+   */
+  void undo(int mark, int joins) {
+    while (trailSize > mark) {
+      trailSize--;
+      int index = trailIndex[trailSize];
+      lowerBound += cheapest(trailDomain[trailSize]) - cheapest(domain[index]);
+      domain[index] = trailDomain[trailSize];
+    }
+    while (joinCount > joins) {
+      joinCount--;
+      int index = joinTile[joinCount];
+      int direction = joinDir[joinCount];
+      int y = joinRoot[joinCount];
+      int x = root[y];
+      root[y] = -1;
+      size[x] -= size[y];
+      open[x] -= open[y] - 2;
+      joined[index] &= ~(1 << direction);
+      joined[bits.neighbor(index, direction)] &= ~(1 << bits.oppositeOf(direction));
+    }
+  }
+
+  /**
+   * The clicks of the cheapest turns in a domain, 0 for an empty domain
+   * 
+   * @param turns A domain
+   * @return An int
+   */
+  static int cheapest(int turns) {
+    if (turns == 0) {
+      return 0;
+    }
+    return Integer.numberOfTrailingZeros(turns);
+  }
+
+  /**
+   * Check the neighbors of a tile again
+   * 
+   * @param index Index of a tile
+   */
+  void push(int index) {
+    if (!stacked[index]) {
+      stacked[index] = true;
+      stack[stackSize] = index;
+      stackSize++;
+    }
+  }
+
+  /**
+   * Forget the tiles left to check, after a dead end
+   */
+  void clearStack() {
+    while (stackSize > 0) {
+      stackSize--;
+      stacked[stack[stackSize]] = false;
+    }
+  }
+
+  /**
+   * Get the first tile not fixed yet to guess next, the tiles before the
+   * latest guess are all fixed already
+   * 
+   * @param depth The number of guesses made
+   * @return Index of a tile, -1 if every tile is fixed
+   */
+  int pickTile(int depth) {
+    int start = 0;
+    if (depth > 0) {
+      start = decisionTile[depth - 1] + 1;
+    }
+    for (int i = start; i < n; i++) {
+      if (Integer.bitCount(domain[i]) > 1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the radius of the power on the fixed wiring, half the number of tiles
+   * on its longest path, found with two BFS
+   * 
+   * @return An int, -1 if the wiring doesn't join every tile
+   */
+  int treeRadius() {
+    int end = farthest(0);
+    if (end < 0) {
+      return -1;
+    }
+    return (distance[farthest(end)] + 1) / 2;
+  }
+
+  /**
+   * Run a BFS over the fixed wiring from a tile, filling distance
+   * 
+   * @param start Index of a tile
+   * @return Index of the farthest tile, -1 if some tile isn't reached
+   */
+  int farthest(int start) {
+    for (int i = 0; i < n; i++) {
+      distance[i] = -1;
+    }
+    int head = 0;
+    int tail = 0;
+    queue[tail] = start;
+    tail++;
+    distance[start] = 0;
+    while (head < tail) {
+      int current = queue[head];
+      head++;
+      int mask = rotated[current * sides + cheapest(domain[current])];
+      for (int d = 0; d < sides; d++) {
+        int next = bits.neighbor(current, d);
+        if ((mask & (1 << d)) != 0 && next >= 0 && distance[next] < 0) {
+          distance[next] = distance[current] + 1;
+          queue[tail] = next;
+          tail++;
+        }
+      }
+    }
+    if (tail < n) {
+      return -1;
+    }
+    return queue[tail - 1];
+  }
+
+  /**
+   * Get the number of wires on the longest path through the joined wires of
+   * the part of the board a tile is in, the solution can't have a shorter one
+   * 
+   * @param index Index of a tile
+   * @return An int
+   */
+  int joinedDiameter(int index) {
+    int reached = reachJoined(index);
+    int end = queue[reached - 1];
+    clearReach(reached);
+    reached = reachJoined(end);
+    int diameter = reach[queue[reached - 1]];
+    clearReach(reached);
+    return diameter;
+  }
+
+  /**
+   * Run a BFS over the joined wires from a tile, filling reach for the tiles
+   * it reaches, in order in queue
+   * 
+   * @param start Index of a tile
+   * @return The number of tiles reached
+   */
+  int reachJoined(int start) {
+    int head = 0;
+    int tail = 0;
+    queue[tail] = start;
+    tail++;
+    reach[start] = 0;
+    while (head < tail) {
+      int current = queue[head];
+      head++;
+      for (int d = 0; d < sides; d++) {
+        if ((joined[current] & (1 << d)) != 0) {
+          int next = bits.neighbor(current, d);
+          if (reach[next] < 0) {
+            reach[next] = reach[current] + 1;
+            queue[tail] = next;
+            tail++;
+          }
+        }
+      }
+    }
+    return tail;
+  }
+
+  /**
+   * Forget the tiles the last reachJoined() reached
+   * 
+   * @param reached The number of tiles reached
+   */
+  void clearReach(int reached) {
+    for (int i = 0; i < reached; i++) {
+      reach[queue[i]] = -1;
+    }
+  }
+
+  /**
+   * Check if the fixed turns are better than the best solution so far
+   * 
+   * @param treeRadius The radius of the power on the fixed wiring
+   * @return A boolean
+   */
+  boolean better(int treeRadius) {
+    if (turns == null) {
+      return true;
+    }
+    else if ((treeRadius <= radius) != (solvedRadius <= radius)) {
+      return treeRadius <= radius;
+    }
+    return lowerBound < clicks;
+  }
+
+  /**
+   * Keep the fixed turns as the best solution
+   * 
+   * @param treeRadius The radius of the power on its wiring
+   */
+  void saveSolution(int treeRadius) {
+    turns = new int[n];
+    clicks = 0;
+    for (int i = 0; i < n; i++) {
+      turns[i] = cheapest(domain[i]);
+      clicks += turns[i];
+    }
+    solvedRadius = treeRadius;
+  }
+
+  /**
+   * Check if the solution can be powered from one tile within the radius
+   * 
+   * @return A boolean
+   */
+  boolean withinRadius() {
+    return turns != null && solvedRadius <= radius;
+  }
+
+  /**
+   * The tiles to click, in order, to solve the board with the fewest clicks
+   * 
+   * @return Indices of tiles, a tile turned k times is in it k times
+   */
+  int[] sequence() {
+    int[] clicked = new int[Math.max(clicks, 0)];
+    int next = 0;
+    for (int i = 0; turns != null && i < n; i++) {
+      for (int k = 0; k < turns[i]; k++) {
+        clicked[next] = i;
+        next++;
+      }
+    }
+    return clicked;
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Represent the highest scores of one board, at most capacity of them, kept
+ * in a min-heap so a new score only has to beat the lowest one kept. The
+ * highest score is tracked as scores come in, so reading it is O(1)
+ */
+class TopScores {
+  int[] heap; // The scores kept, the lowest at 0
+  int size = 0; // The number of scores kept
+  int max = 0; // The highest score kept, 0 if none
+
+  /**
+   * The constructor, no score kept
+   * 
+   * @param capacity The most scores kept
+   */
+  TopScores(int capacity) {
+    this.heap = new int[capacity];
+  }
+
+  /**
+   * Offer a score, kept if there is room or it beats the lowest score kept
+   * 
+   * @param score A score
+   * @return If the score was kept
+   */
+  boolean add(int score) {
+    if (size == 0 || score > max) {
+      max = score;
+    }
+    if (size < heap.length) {
+      heap[size] = score;
+      size++;
+      siftUp(size - 1);
+      return true;
+    }
+    else if (score > heap[0]) {
+      // the highest score is never the one dropped, unless it is beaten
+      heap[0] = score;
+      siftDown(0);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Move a score up the heap until its parent is lower
+   * 
+   * @param index Index of a score in heap
+   */
+  void siftUp(int index) {
+    int score = heap[index];
+    while (index > 0 && heap[(index - 1) / 2] > score) {
+      heap[index] = heap[(index - 1) / 2];
+      index = (index - 1) / 2;
+    }
+    heap[index] = score;
+  }
+
+  /**
+   * Move a score down the heap until its children are higher
+   * 
+   * @param index Index of a score in heap
+   */
+  void siftDown(int index) {
+    int score = heap[index];
+    while (2 * index + 1 < size) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (heap[child] >= score) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = score;
+  }
+
+  /**
+   * Get the scores kept, highest first
+   * 
+   * @return An array of size scores
+   */
+  int[] sorted() {
+    int[] scores = new int[size];
+    for (int i = 0; i < size; i++) {
+      scores[i] = heap[i];
+    }
+    java.util.Arrays.sort(scores);
+    for (int i = 0; i < size / 2; i++) {
+      int low = scores[i];
+      scores[i] = scores[size - 1 - i];
+      scores[size - 1 - i] = low;
+    }
+    return scores;
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Represent the adjacency of a tree (or any graph) over nodes 0 to n - 1 in
+ * compressed form: the neighbors of node i are targets[offsets[i]] up to
+ * targets[offsets[i + 1] - 1], in the order the edges were given
+ */
+class TreeAdjacency {
+  int[] offsets; // node -> position of its first neighbor in targets
+  int[] targets; // the neighbors of every node, one after another
+
+  /**
+   * The constructor, builds the adjacency from a list of undirected edges
+   * 
+   * @param n         The number of nodes
+   * @param from      One end of each edge
+   * @param to        The other end of each edge
+   * @param edgeCount The number of edges
+   */
+  TreeAdjacency(int n, int[] from, int[] to, int edgeCount) {
+    offsets = new int[n + 1];
+    targets = new int[2 * edgeCount];
+
+    for (int i = 0; i < edgeCount; i++) {
+      offsets[from[i] + 1]++;
+      offsets[to[i] + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] next = new int[n];
+    for (int i = 0; i < n; i++) {
+      next[i] = offsets[i];
+    }
+    for (int i = 0; i < edgeCount; i++) {
+      targets[next[from[i]]] = to[i];
+      next[from[i]]++;
+      targets[next[to[i]]] = from[i];
+      next[to[i]]++;
+    }
+  }
+
+  /**
+   * Get the number of nodes
+   * 
+   * @return An int
+   */
+  int size() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Get the distance of every node from the given node with a BFS
+   * 
+   * @param start A node
+   * @return node -> distance, -1 if not reachable
+   */
+  int[] distancesFrom(int start) {
+    int n = size();
+    int[] distance = new int[n];
+    for (int i = 0; i < n; i++) {
+      distance[i] = -1;
+    }
+    int[] queue = new int[n];
+    int head = 0;
+    int tail = 0;
+    queue[tail] = start;
+    tail++;
+    distance[start] = 0;
+
+    while (head < tail) {
+      int current = queue[head];
+      head++;
+      for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+        int neighbor = targets[i];
+        if (distance[neighbor] < 0) {
+          distance[neighbor] = distance[current] + 1;
+          queue[tail] = neighbor;
+          tail++;
+        }
+      }
+    }
+    return distance;
+  }
+
+  /**
+   * Find a node farthest from the given node
+   * 
+   * @param start A node
+   * @return The farthest node
+   */
+  int farthestFrom(int start) {
+    int[] distance = distancesFrom(start);
+    int farthest = start;
+    for (int i = 0; i < distance.length; i++) {
+      if (distance[i] > distance[farthest]) {
+        farthest = i;
+      }
+    }
+    return farthest;
+  }
+
+  /**
+   * Get the radius of the tree containing the given node, half the number of
+   * nodes on its longest path, found with two BFS
+   * 
+   * @param start A node of the tree
+   * @return An int
+   */
+  int radius(int start) {
+    int end = farthestFrom(start);
+    int[] distance = distancesFrom(end);
+    int diameter = 0;
+    for (int i = 0; i < distance.length; i++) {
+      diameter = Math.max(diameter, distance[i]);
+    }
+    return (diameter + 1) / 2;
+  }
+}
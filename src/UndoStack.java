@@ -0,0 +1,131 @@
+/**
+ * Represent the moves of a game that can be undone and redone, as one int
+ * each in a primitive array that doubles when full: a rotation is
+ * (index << 1), undone by turning the tile back; a move of the power station
+ * is (other << 1 | 1), where other is the tile the station is put back on.
+ * Undoing a move of the power station swaps other with where the station was,
+ * so the same entry redoes it. The moves below size can be undone, the ones
+ * from size to top redone, and a new move drops the ones that could be redone
+ */
+class UndoStack {
+  int[] entries = new int[64]; // The moves, oldest first
+  int size = 0; // The moves that can be undone
+  int top = 0; // The moves recorded, the ones above size can be redone
+
+  /**
+   * Record that a tile was rotated clockwise
+   * 
+   * @param index Index of the tile
+   */
+  void rotated(int index) {
+    push(index << 1);
+  }
+
+  /**
+   * Record that the power station moved
+   * 
+   * @param previous Index of the tile it was on
+   */
+  void moved(int previous) {
+    push((previous << 1) | 1);
+  }
+
+  /**
+   * Record a move, dropping the moves that could be redone
+   * 
+   * @param entry A move, encoded as above
+   */
+  void push(int entry) {
+    if (size == entries.length) {
+      entries = java.util.Arrays.copyOf(entries, 2 * entries.length);
+    }
+    entries[size] = entry;
+    size++;
+    top = size;
+  }
+
+  /**
+   * Forget every move, for a new game
+   */
+  void clear() {
+    size = 0;
+    top = 0;
+  }
+
+  /**
+   * Check if there is a move to undo
+   * 
+   * @return A boolean
+   */
+  boolean canUndo() {
+    return size > 0;
+  }
+
+  /**
+   * Check if there is a move to redo
+   * 
+   * @return A boolean
+   */
+  boolean canRedo() {
+    return size < top;
+  }
+
+  /**
+   * Undo the last move on a board: turn the tile back counterclockwise or put
+   * the power station back, updating the power from there
+   * 
+   * @param bits    The board
+   * @param power   The power of the board, null to leave it
+   * @param station Index of the power station
+   * @return Index of the power station after
+   */
+  int undo(BitBoard bits, PowerEngine power, int station) {
+    size--;
+    return apply(bits, power, station, false);
+  }
+
+  /**
+   * Redo the last move undone on a board
+   * 
+   * @param bits    The board
+   * @param power   The power of the board, null to leave it
+   * @param station Index of the power station
+   * @return Index of the power station after
+   */
+  int redo(BitBoard bits, PowerEngine power, int station) {
+    size++;
+    return apply(bits, power, station, true);
+  }
+
+  /**
+   * Play the move at entries[size] or entries[size - 1] one way or the other
+   * 
+   * @param bits      The board
+   * @param power     The power of the board, null to leave it
+   * @param station   Index of the power station
+   * @param clockwise If the move is played forwards
+   * @return Index of the power station after
+   */
+  int apply(BitBoard bits, PowerEngine power, int station, boolean clockwise) {
+    int position = size;
+    if (clockwise) {
+      position = size - 1;
+    }
+    int entry = entries[position];
+    if ((entry & 1) == 0) {
+      bits.rotate(entry >>> 1, clockwise);
+      if (power != null) {
+        power.afterRotation(entry >>> 1);
+      }
+      return station;
+    }
+    int other = entry >>> 1;
+    entries[position] = (station << 1) | 1;
+    bits.markChanged(station);
+    bits.markChanged(other);
+    if (power != null) {
+      power.afterStationMove(other);
+    }
+    return other;
+  }
+}
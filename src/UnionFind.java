@@ -0,0 +1,61 @@
+/**
+ * Represent a UnionFind structure, used in making minimum spanning tree
+ */
+class UnionFind {
+  int[] parent; // The array that contains index -> parent of node on that index on nodes
+  int[] rank; // The array that conatains ranks of the node on the index
+
+  /**
+   * The constructor
+   * 
+   * @param n An int
+   */
+  UnionFind(int n) {
+    parent = new int[n];
+    rank = new int[n];
+
+    for (int i = 0; i < n; i++) {
+      parent[i] = i;
+      rank[i] = 0;
+    }
+  }
+
+  /**
+   * Determine if two nodes have one parent in the tree
+   * 
+   * @param i An index
+   * @return A boolean
+   */
+  int find(int i) {
+    // Path halving, iterative so large boards can't overflow the stack
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Combine two nodes, make their parent the same
+   * 
+   * @param x Index of a node
+   * @param y Index of another node
+   */
+  void union(int x, int y) {
+    int rootX = find(x);
+    int rootY = find(y);
+    if (rootX != rootY) {
+      if (rank[rootX] > rank[rootY]) {
+        parent[rootY] = rootX;
+      }
+      else if (rank[rootX] < rank[rootY]) {
+        parent[rootX] = rootY;
+      }
+      else {
+        parent[rootY] = rootX;
+        rank[rootX]++;
+      }
+    }
+  }
+
+}
@@ -1,10 +1,10 @@
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
+import java.util.Arrays;
 import java.util.Random;
 
 import javalib.impworld.*;
@@ -22,16 +22,53 @@ import tester.Tester;
  * The runnable class for the Game
  */
 class LightEmAllApplication {
+  // A board larger than this is shown through a viewport of this size
+  static final int WINDOW_WIDTH = 1200;
+  static final int WINDOW_HEIGHT = 800;
+
+  // Write the moves of every game into ~/.lightemall-moves, run with -Dlightemall.moves=true
+  static final boolean LOG_MOVES = Boolean.getBoolean("lightemall.moves");
+
+  /**
+   * Play on a board of 15 by 10 tiles, or "width height" tiles
+   * 
+   * @param args Nothing, or the width and height of the board
+   */
   public static void main(String[] args) {
-    LightEmAll world1 = new LightEmAll(10, 15, 80, 10);
-    world1.bigBang(world1.width * world1.tileSize, world1.height * world1.tileSize, .1);
+    int width = 15;
+    int height = 10;
+    if (args.length == 2) {
+      width = Integer.parseInt(args[0]);
+      height = Integer.parseInt(args[1]);
+    }
+    LightEmAll world1 = new LightEmAll(height, width, 80, 10);
+    if (width * world1.tileSize > WINDOW_WIDTH || height * world1.tileSize > WINDOW_HEIGHT) {
+      world1.useViewport(Math.min(width * world1.tileSize, WINDOW_WIDTH),
+          Math.min(height * world1.tileSize, WINDOW_HEIGHT));
+    }
+    world1.boardPool = new BoardPool();
+    world1.scores = new ScoreStore(Paths.get(System.getProperty("user.home"),
+        ".lightemall-scores"));
+    if (LOG_MOVES) {
+      world1.moveLogDirectory = Paths.get(System.getProperty("user.home"), ".lightemall-moves");
+      try {
+        Files.createDirectories(world1.moveLogDirectory);
+      }
+      catch (IOException e) {
+        System.err.println("Moves are not saved: " + e.getMessage());
+        world1.moveLogDirectory = null;
+      }
+    }
+    world1.boardPool.prepare(false, world1.width, world1.height);
+    world1.boardPool.prepare(true, world1.width, world1.height);
+    world1.bigBang(world1.sceneWidth(), world1.sceneHeight(), .1);
   }
 }
 
 /**
  * Represent a Light Then All Game World
  */
-class LightEmAll extends World {
+class LightEmAll extends World implements PowerListener {
   // a list of columns of GamePieces,
   // i.e., represents the board in column-major order
   ArrayList<ArrayList<GamePiece>> board;
@@ -51,6 +88,18 @@ class LightEmAll extends World {
   // a list of edges of the mst of hex board
   ArrayList<HexEdge> hexMst;
 
+  // the layout of the hex board, hexNodes are in the order of its indices
+  HexGrid hexGrid;
+
+  boolean hexMode = false; // If the game is played on the hex board
+  int hexSize; // The side length of a hex tile, so the hex board fits the scene
+
+  BoardPool boardPool; // Boards generated in the background, null to generate on demand
+
+  MoveLog moveLog; // The moves of the game being played, null before the first game
+  Path moveLogDirectory; // Where the MoveLog of every game is written, null for none
+  UndoStack undoStack = new UndoStack(); // The moves of the game to undo and redo
+
   // the width and height of the board
   public int width;
   public int height;
@@ -60,17 +109,16 @@ class LightEmAll extends World {
 
   double UIScale;
 
-  // the current location of the power station,
+  // the current location of the power station, as in LightEmAllEngine,
   // as well as its effective radius
   int powerRow = 0;
   int powerCol = 0;
 
-  // Hexegon version of Power Station position
-  int hexPowerRow = 0;
-  int hexPowerCol = 0;
-
   int radius; // The radius of the power
 
+  // The rules of the game, this World draws its board and forwards input to it
+  LightEmAllEngine engine = new LightEmAllEngine();
+
   int randomSeed = 0;
 
   public int tileSize; // The tile size, also side length of Hexgon
@@ -79,15 +127,59 @@ class LightEmAll extends World {
   public boolean launchIndicator = true; // Indicate launching a new game
   public boolean quitGameIndicator = false; // indicate about to quit the game
 
-  int steps = 0; // Steps took in the game
-  double time = 0.0; // time used in the game
-
-  ArrayList<Integer> ranking = new ArrayList<Integer>(); // List of Scores
+  ScoreStore scores = new ScoreStore(null); // The high scores, in memory unless given a file
 
   boolean onUIPage = true; // indicate if on UI page
   boolean onMiddlePage = false; // indicate if on middle page
 
+  // Which page is on the World Scene, NO_PAGE while the board is shown
+  static final int NO_PAGE = 0;
+  static final int STARTING_PAGE = 1;
+  static final int MIDDLE_PAGE = 2;
+  int shownPage = NO_PAGE;
+
+  WorldImage startingPage; // The composed starting page, null until it is built
+  WorldImage middlePage; // The composed middle page, null until it is built
+
   WorldScene ws; // The WorldScene
+  int placedImages = 0; // Images placed on ws since it was refreshed
+
+  // The viewport, for boards larger than the window: the scene is viewWidth by
+  // viewHeight pixels, showing the square board from (viewX, viewY) with tiles
+  // of viewTileSize pixels, and only the tiles in view are drawn
+  static final int MIN_VIEW_TILE_SIZE = 1;
+  static final int SCROLL_TILES = 4;
+  boolean viewport = false;
+  int viewWidth;
+  int viewHeight;
+  int viewX = 0;
+  int viewY = 0;
+  int viewTileSize;
+  boolean viewMoved = false; // If the view moved since the last drawBoard()
+
+  // Below lodTileSize pixels a tile is drawn as a block of the color of its
+  // power level, into one image of the view instead of a sprite per tile
+  static final int LOD_TILE_SIZE = 8;
+  int lodTileSize = LOD_TILE_SIZE;
+  ComputedPixelImage lodImage; // The view drawn in blocks, null until it is needed
+
+  // With rasterBackend, the tiles are copied into the one image of raster
+  // instead of placed as an image each, see RasterBoard
+  boolean rasterBackend = false;
+  RasterBoard raster; // The scene drawn by rasterBackend, null until it is needed
+
+  // Tiles whose image changed since the last drawBoard()
+  boolean[] dirty;
+  int[] dirtyTiles;
+  int dirtyCount = 0;
+
+  // Rendered tiles, indexed by (power station * 6 + power level) * 16 + mask
+  // for squares and * 64 + mask for hexagons, built the first time they are
+  // drawn at the current sprite size
+  WorldImage[] tileSprites = new WorldImage[2 * 6 * 16];
+  WorldImage[] hexSprites = new WorldImage[2 * 6 * 64];
+  int spriteSize = -1;
+  int spriteWireWidth = -1;
 
   /**
    * The constructor
@@ -103,8 +195,6 @@ class LightEmAll extends World {
     this.tileSize = tileSize;
     this.wireWidth = wireWidth;
 
-    ranking.add(0);
-
     if (width * height < 100) {
       UIScale = 0.6;
     }
@@ -118,7 +208,8 @@ class LightEmAll extends World {
       UIScale = 1.0;
     }
 
-    ws = new WorldScene(tileSize * width, tileSize * height);
+    ws = new WorldScene(sceneWidth(), sceneHeight());
+    engine.addListener(this);
   }
 
   public WorldScene makeScene() {
@@ -126,22 +217,399 @@ class LightEmAll extends World {
   }
 
   /**
-   * Draw the board
+   * Show the board through a viewport of the given size instead of a scene as
+   * large as the board
+   * 
+   * @param viewWidth  The width of the window in pixels
+   * @param viewHeight The height of the window in pixels
+   */
+  void useViewport(int viewWidth, int viewHeight) {
+    this.viewport = true;
+    this.viewWidth = viewWidth;
+    this.viewHeight = viewHeight;
+    this.lodImage = null;
+    this.viewTileSize = tileSize;
+    this.viewX = 0;
+    this.viewY = 0;
+    this.viewMoved = true;
+    refrashPage();
+    startingPage = null;
+    middlePage = null;
+  }
+
+  /**
+   * Get the width of the World Scene
+   * 
+   * @return The width in pixels
+   */
+  int sceneWidth() {
+    if (viewport) {
+      return viewWidth;
+    }
+    return width * tileSize;
+  }
+
+  /**
+   * Get the height of the World Scene
+   * 
+   * @return The height in pixels
+   */
+  int sceneHeight() {
+    if (viewport) {
+      return viewHeight;
+    }
+    return height * tileSize;
+  }
+
+  /**
+   * Scroll the viewport by whole tiles, kept on the board
+   * 
+   * @param cols The tiles to scroll right, negative for left
+   * @param rows The tiles to scroll down, negative for up
+   */
+  void scrollView(int cols, int rows) {
+    viewX += cols * viewTileSize;
+    viewY += rows * viewTileSize;
+    clampView();
+  }
+
+  /**
+   * Double or halve the size of the tiles in the viewport, keeping the middle
+   * of the view where it is. Tiles are at most tileSize and at least
+   * MIN_VIEW_TILE_SIZE pixels
+   * 
+   * @param in True to zoom in, false to zoom out
+   */
+  void zoomView(boolean in) {
+    int size = viewTileSize / 2;
+    if (in) {
+      size = viewTileSize * 2;
+    }
+    size = Math.max(MIN_VIEW_TILE_SIZE, Math.min(tileSize, size));
+    double middleX = (viewX + viewWidth / 2.0) / viewTileSize;
+    double middleY = (viewY + viewHeight / 2.0) / viewTileSize;
+    viewTileSize = size;
+    viewX = (int) Math.round(middleX * size - viewWidth / 2.0);
+    viewY = (int) Math.round(middleY * size - viewHeight / 2.0);
+    clampView();
+  }
+
+  /**
+   * Keep the viewport on the board, the board centered if it is smaller than
+   * the view
+   */
+  void clampView() {
+    int boardWidth = width * viewTileSize;
+    int boardHeight = height * viewTileSize;
+    if (boardWidth <= viewWidth) {
+      viewX = (boardWidth - viewWidth) / 2;
+    }
+    else {
+      viewX = Math.max(0, Math.min(boardWidth - viewWidth, viewX));
+    }
+    if (boardHeight <= viewHeight) {
+      viewY = (boardHeight - viewHeight) / 2;
+    }
+    else {
+      viewY = Math.max(0, Math.min(boardHeight - viewHeight, viewY));
+    }
+    viewMoved = true;
+  }
+
+  /**
+   * Center the viewport on the power station if it went out of view
+   */
+  void followPowerStation() {
+    int x = powerCol * viewTileSize;
+    int y = powerRow * viewTileSize;
+    if (x < viewX || y < viewY || x + viewTileSize > viewX + viewWidth
+        || y + viewTileSize > viewY + viewHeight) {
+      viewX = x + viewTileSize / 2 - viewWidth / 2;
+      viewY = y + viewTileSize / 2 - viewHeight / 2;
+      clampView();
+    }
+  }
+
+  /**
+   * Draw the board, only the tiles that changed since the last time are placed
+   * again. Once the scene would hold more than two images per tile it is
+   * refreshed and the whole board is placed once, so its size stays bounded
    */
   void drawBoard() {
-    for (int row = 0; row < height; row++) {
-      for (int col = 0; col < width; col++) {
-        GamePiece piece = board.get(row).get(col);
-        int x = col * tileSize + tileSize / 2;
-        int y = row * tileSize + tileSize / 2;
-        // For Test Only:
-        // System.out.println("Placing at: " + x + ", " + y);
-        WorldImage pieceImage = piece.tileRenderer(tileSize, wireWidth, powerCol, powerRow, radius);
-        this.ws.placeImageXY(pieceImage, x, y);
+    if (viewport) {
+      drawView();
+      return;
+    }
+    if (rasterBackend) {
+      drawRaster(0, height - 1, 0, width - 1);
+    }
+    else if (placedImages == 0 || placedImages + dirtyCount > 2 * width * height) {
+      refrashPage();
+      for (int row = 0; row < height; row++) {
+        for (int col = 0; col < width; col++) {
+          drawTile(row, col);
+        }
+      }
+    }
+    else {
+      for (int i = 0; i < dirtyCount; i++) {
+        drawTile(dirtyTiles[i] / width, dirtyTiles[i] % width);
+      }
+    }
+    for (int i = 0; i < dirtyCount; i++) {
+      dirty[dirtyTiles[i]] = false;
+    }
+    dirtyCount = 0;
+  }
+
+  /**
+   * Draw the tiles in the viewport and one tile around it, so a frame costs
+   * the same on any size of board. Once the view moved, or the scene would
+   * hold more than two images per tile in view, the scene is refreshed and
+   * every tile in view is placed once; otherwise only the changed tiles in
+   * view are placed again. Tiles smaller than lodTileSize are drawn as blocks,
+   * see drawViewBlocks()
+   */
+  void drawView() {
+    int firstRow = Math.max(0, Math.floorDiv(viewY, viewTileSize) - 1);
+    int lastRow = Math.min(height - 1, Math.floorDiv(viewY + viewHeight - 1, viewTileSize) + 1);
+    int firstCol = Math.max(0, Math.floorDiv(viewX, viewTileSize) - 1);
+    int lastCol = Math.min(width - 1, Math.floorDiv(viewX + viewWidth - 1, viewTileSize) + 1);
+    int inView = (lastRow - firstRow + 1) * (lastCol - firstCol + 1);
+    if (viewTileSize < lodTileSize) {
+      drawViewBlocks(firstRow, lastRow, firstCol, lastCol);
+    }
+    else if (rasterBackend) {
+      drawRaster(firstRow, lastRow, firstCol, lastCol);
+    }
+    else if (viewMoved || placedImages == 0 || placedImages + dirtyCount > 2 * inView) {
+      refrashPage();
+      for (int row = firstRow; row <= lastRow; row++) {
+        for (int col = firstCol; col <= lastCol; col++) {
+          drawTile(row, col);
+        }
+      }
+      viewMoved = false;
+    }
+    else {
+      for (int i = 0; i < dirtyCount; i++) {
+        int row = dirtyTiles[i] / width;
+        int col = dirtyTiles[i] % width;
+        if (row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+          drawTile(row, col);
+        }
+      }
+    }
+    for (int i = 0; i < dirtyCount; i++) {
+      dirty[dirtyTiles[i]] = false;
+    }
+    dirtyCount = 0;
+  }
+
+  /**
+   * Draw the tiles in view as blocks of one color into lodImage, placed on
+   * the scene as a single image. Once the view moved the image is painted
+   * again, each row of tiles with a block per run of tiles of the same color;
+   * otherwise only the changed tiles are painted, on the image already placed.
+   * The image is made once for the size of the view
+   * 
+   * @param firstRow The first row in view
+   * @param lastRow  The last row in view
+   * @param firstCol The first col in view
+   * @param lastCol  The last col in view
+   */
+  void drawViewBlocks(int firstRow, int lastRow, int firstCol, int lastCol) {
+    if (viewMoved || placedImages == 0 || lodImage == null) {
+      if (lodImage == null) {
+        lodImage = new ComputedPixelImage(viewWidth, viewHeight);
+      }
+      if (width * viewTileSize < viewWidth || height * viewTileSize < viewHeight) {
+        lodImage.setPixels(0, 0, viewWidth, viewHeight, RasterBoard.CLEAR);
+      }
+      byte[] levels = engine.bits.levels;
+      for (int row = firstRow; row <= lastRow; row++) {
+        int start = firstCol;
+        for (int col = firstCol + 1; col <= lastCol + 1; col++) {
+          // a run ends at the power station and at a change of power level
+          if (col > lastCol || levels[row * width + col] != levels[row * width + start]
+              || (row == powerRow && (col == powerCol || col - 1 == powerCol))) {
+            fillBlock(row, start, col - start, blockColor(row, start));
+            start = col;
+          }
+        }
+      }
+      refrashPage();
+      placeImage(lodImage, viewWidth / 2, viewHeight / 2);
+      viewMoved = false;
+    }
+    else {
+      for (int i = 0; i < dirtyCount; i++) {
+        int row = dirtyTiles[i] / width;
+        int col = dirtyTiles[i] % width;
+        if (row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+          fillBlock(row, col, 1, blockColor(row, col));
+        }
+      }
+    }
+  }
+
+  /**
+   * Draw the tiles in the given rows and cols into raster, placed on the scene
+   * as a single image. Once the view moved the image is drawn again; otherwise
+   * only the changed tiles are copied into the image already placed
+   * 
+   * @param firstRow The first row to draw
+   * @param lastRow  The last row to draw
+   * @param firstCol The first col to draw
+   * @param lastCol  The last col to draw
+   */
+  void drawRaster(int firstRow, int lastRow, int firstCol, int lastCol) {
+    int size = tileSize;
+    int wire = wireWidth;
+    if (viewport) {
+      size = viewTileSize;
+      wire = Math.max(1, wireWidth * size / tileSize);
+    }
+    boolean redraw = viewMoved || placedImages == 0 || raster == null
+        || raster.size != size || raster.wireWidth != wire;
+    if (raster == null || raster.width != sceneWidth() || raster.height != sceneHeight()) {
+      raster = new RasterBoard(sceneWidth(), sceneHeight());
+    }
+    raster.useSize(size, wire);
+    if (redraw) {
+      if (width * size < raster.width || height * size < raster.height) {
+        raster.clear();
+      }
+      for (int row = firstRow; row <= lastRow; row++) {
+        for (int col = firstCol; col <= lastCol; col++) {
+          rasterTile(row, col);
+        }
+      }
+      refrashPage();
+      placeImage(raster.image, raster.width / 2, raster.height / 2);
+      viewMoved = false;
+    }
+    else {
+      for (int i = 0; i < dirtyCount; i++) {
+        int row = dirtyTiles[i] / width;
+        int col = dirtyTiles[i] % width;
+        if (row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+          rasterTile(row, col);
+        }
       }
     }
   }
 
+  /**
+   * Copy the sprite of one tile into raster, through the viewport if there is
+   * one
+   * 
+   * @param row The row of the tile
+   * @param col The col of the tile
+   */
+  void rasterTile(int row, int col) {
+    GamePiece piece = board.get(row).get(col);
+    int x = col * raster.size;
+    int y = row * raster.size;
+    if (viewport) {
+      x -= viewX;
+      y -= viewY;
+    }
+    raster.drawTile(x, y, spriteKey(piece.powerLevel(), piece.powerStation()), piece.mask());
+  }
+
+  /**
+   * Switch between placing an image per tile and drawing the tiles into one
+   * image, the scene drawn again the next frame
+   */
+  void switchBackend() {
+    rasterBackend = !rasterBackend;
+    refrashPage();
+  }
+
+  /**
+   * Get the color a tile is drawn in as a block
+   * 
+   * @param row The row of the tile
+   * @param col The col of the tile
+   * @return The wire color of its power level, RasterBoard.STATION_COLOR for
+   *         the power station
+   */
+  Color blockColor(int row, int col) {
+    if (row == powerRow && col == powerCol) {
+      return RasterBoard.STATION_COLOR;
+    }
+    return RasterBoard.WIRE_COLORS[engine.bits.level(row * width + col)];
+  }
+
+  /**
+   * Paint tiles next to each other in a row as one block of lodImage, cut to
+   * the view
+   * 
+   * @param row   The row of the tiles
+   * @param col   The col of the first tile
+   * @param count The number of tiles
+   * @param color The color of the block
+   */
+  void fillBlock(int row, int col, int count, Color color) {
+    int size = viewTileSize;
+    int left = Math.max(0, col * size - viewX);
+    int right = Math.min(viewWidth, (col + count) * size - viewX);
+    int top = Math.max(0, row * size - viewY);
+    int bottom = Math.min(viewHeight, (row + 1) * size - viewY);
+    if (left < right && top < bottom) {
+      lodImage.setPixels(left, top, right - left, bottom - top, color);
+    }
+  }
+
+  /**
+   * Place the image of one tile on the scene, through the viewport if there
+   * is one
+   * 
+   * @param row The row of the tile
+   * @param col The col of the tile
+   */
+  void drawTile(int row, int col) {
+    GamePiece piece = board.get(row).get(col);
+    if (viewport) {
+      int size = viewTileSize;
+      placeImage(piece.tileRenderer(size, Math.max(1, wireWidth * size / tileSize), powerCol,
+          powerRow, radius), col * size + size / 2 - viewX, row * size + size / 2 - viewY);
+      return;
+    }
+    int x = col * tileSize + tileSize / 2;
+    int y = row * tileSize + tileSize / 2;
+    // For Test Only:
+    // System.out.println("Placing at: " + x + ", " + y);
+    WorldImage pieceImage = piece.tileRenderer(tileSize, wireWidth, powerCol, powerRow, radius);
+    placeImage(pieceImage, x, y);
+  }
+
+  /**
+   * Place an image on the World Scene, counting it
+   * 
+   * @param image An image
+   * @param x     The x of the center of the image
+   * @param y     The y of the center of the image
+   */
+  void placeImage(WorldImage image, int x, int y) {
+    this.ws.placeImageXY(image, x, y);
+    placedImages++;
+  }
+
+  /**
+   * Mark a tile to be placed again by the next drawBoard()
+   * 
+   * @param index Index of a tile (row * width + col)
+   */
+  void markDirty(int index) {
+    if (!dirty[index]) {
+      dirty[index] = true;
+      dirtyTiles[dirtyCount] = index;
+      dirtyCount++;
+    }
+  }
+
   /**
    * Update each tick
    */
@@ -153,27 +621,41 @@ class LightEmAll extends World {
       drawStartingPage();
     }
     else {
-      time += .1;
-      if (launchIndicator) {
+      engine.time += .1;
+      if (launchIndicator && hexMode) {
+        hexPowerUpdate();
+        drawHexBoard();
+        launchIndicator = false;
+      }
+      else if (launchIndicator) {
         powerUpdate();
         drawBoard();
         launchIndicator = false;
       }
-      if (checkIfAllPowered()) {
-        onMiddlePage = true;
-        onUIPage = false;
-      }
     }
   }
 
+  /**
+   * Go to the middle page once every GamePiece is powered, told by the engine
+   * instead of checked on every tick
+   */
+  public void onSolved() {
+    flushMoveLog();
+    onMiddlePage = true;
+    onUIPage = false;
+  }
+
   /**
    * Reset the Game
    */
   void resetGame() {
     refrashPage();
-    ranking.add(getScore());
-    steps = 0;
-    time = 0;
+    flushMoveLog();
+    scores.add(hexMode, width, height, getScore());
+    startingPage = null;
+    middlePage = null;
+    engine.steps = 0;
+    engine.time = 0;
     powerRow = 0;
     powerCol = 0;
     onUIPage = true;
@@ -185,10 +667,18 @@ class LightEmAll extends World {
    * detect mouse movement
    */
   public void onMouseReleased(Posn position) {
-    if (!onUIPage) {
+    // the board under the middle page is solved, a click doesn't reach it
+    if (onMiddlePage) {
+      return;
+    }
+    if (!onUIPage && hexMode) {
+      rotateHexGamePiece(position);
+      engine.steps++;
+      drawHexBoard();
+    }
+    else if (!onUIPage) {
       rotateGamePiece(position);
-      updatePowerStatus();
-      steps++;
+      engine.steps++;
       drawBoard();
     }
   }
@@ -206,27 +696,68 @@ class LightEmAll extends World {
       }
     }
     else {
-      if (!onUIPage) {
-        if ((key.equals("w") || key.equals("up")) && checkIfCouldMoveThrough(2)) {
-          removeOldPowerStation();
-          powerRow--;
+      if (!onUIPage && hexMode) {
+        // The six directions around the hex power station, north clockwise
+        String[] hexKeys = { "w", "e", "d", "s", "a", "q" };
+        for (int direction = 0; direction < 6; direction++) {
+          if (key.equals(hexKeys[direction])) {
+            moveHexPowerStation(direction);
+          }
+        }
+        if (key.equals("z")) {
+          undoMove();
+        }
+        else if (key.equals("y")) {
+          redoMove();
+        }
+        else if (key.equals("escape")) {
+          quitGameIndicator = true;
         }
-        else if ((key.equals("s") || key.equals("down")) && checkIfCouldMoveThrough(1)) {
-          removeOldPowerStation();
-          powerRow++;
+        drawHexBoard();
+      }
+      else if (!onUIPage) {
+        if (key.equals("w") || key.equals("up")) {
+          movePowerStation(LightEmAllEngine.TOP);
+        }
+        else if (key.equals("s") || key.equals("down")) {
+          movePowerStation(LightEmAllEngine.BOTTOM);
+        }
+        else if (key.equals("a") || key.equals("left")) {
+          movePowerStation(LightEmAllEngine.LEFT);
+        }
+        else if (key.equals("d") || key.equals("right")) {
+          movePowerStation(LightEmAllEngine.RIGHT);
+        }
+        else if (key.equals("z")) {
+          undoMove();
+        }
+        else if (key.equals("y")) {
+          redoMove();
+        }
+        else if (viewport && key.equals("i")) {
+          scrollView(0, -SCROLL_TILES);
+        }
+        else if (viewport && key.equals("k")) {
+          scrollView(0, SCROLL_TILES);
         }
-        else if ((key.equals("a") || key.equals("left")) && checkIfCouldMoveThrough(4)) {
-          removeOldPowerStation();
-          powerCol--;
+        else if (viewport && key.equals("j")) {
+          scrollView(-SCROLL_TILES, 0);
         }
-        else if ((key.equals("d") || key.equals("right")) && checkIfCouldMoveThrough(3)) {
-          removeOldPowerStation();
-          powerCol++;
+        else if (viewport && key.equals("l")) {
+          scrollView(SCROLL_TILES, 0);
+        }
+        else if (viewport && (key.equals("=") || key.equals("+"))) {
+          zoomView(true);
+        }
+        else if (viewport && key.equals("-")) {
+          zoomView(false);
+        }
+        else if (key.equals("b")) {
+          switchBackend();
         }
         else if (key.equals("escape")) {
           quitGameIndicator = true;
         }
-        powerUpdate();
         drawBoard();
       }
       else {
@@ -251,6 +782,7 @@ class LightEmAll extends World {
    */
   public WorldEnd worldEnds() {
     if (quitGameIndicator) {
+      flushMoveLog();
       refrashPage();
       drawEndPage("Game Summary: ");
       return new WorldEnd(true, ws);
@@ -264,80 +796,106 @@ class LightEmAll extends World {
    * @param str A String
    */
   void drawEndPage(String str) {
-    int intWidth = (int) ((int) tileSize * width);
-    int intHeight = (int) ((int) tileSize * height);
-    ws.placeImageXY(new RectangleImage(intWidth, intHeight, OutlineMode.SOLID, Color.GRAY),
-        width * tileSize / 2, ((int) (height * tileSize * 0.5)));
+    int intWidth = sceneWidth();
+    int intHeight = sceneHeight();
+    placeImage(new RectangleImage(intWidth, intHeight, OutlineMode.SOLID, Color.GRAY),
+        sceneWidth() / 2, ((int) (sceneHeight() * 0.5)));
 
-    ws.placeImageXY(new TextImage("(" + "High Score: " + getHighestScore(),
-        tileSize * 0.5 * UIScale, Color.WHITE), width * tileSize / 2,
-        ((int) (height * tileSize * 0.55)));
+    placeImage(new TextImage("(" + "High Score: " + getHighestScore(),
+        tileSize * 0.5 * UIScale, Color.WHITE), sceneWidth() / 2,
+        ((int) (sceneHeight() * 0.55)));
 
-    ws.placeImageXY(new TextImage(str, tileSize * 0.5 * UIScale, Color.WHITE), width * tileSize / 2,
-        ((int) (height * tileSize * 0.45)));
+    placeImage(new TextImage(str, tileSize * 0.5 * UIScale, Color.WHITE), sceneWidth() / 2,
+        ((int) (sceneHeight() * 0.45)));
   }
 
   /**
-   * To Draw the middle page, the page after each round was passed
+   * To Draw the middle page, the page after each round was passed. The page is
+   * composed once per round and placed on a fresh scene
    */
   void drawMiddlePage() {
-    int intWidth = (int) ((int) tileSize * width);
-    int intHeight = (int) ((int) tileSize * height);
-
-    ws.placeImageXY(new RectangleImage(intWidth, intHeight, OutlineMode.SOLID, Color.GRAY),
-        width * tileSize / 2, ((int) (height * tileSize * 0.5)));
-
-    ws.placeImageXY(
-        new TextImage("Time Used: " + String.format("%.1f", time) + " Seconds",
-            tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.3)));
-
-    ws.placeImageXY(new TextImage("Score: " + getScore(), tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.4)));
-
-    ws.placeImageXY(
-        new TextImage("High Score: " + getHighestScore(), tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.5)));
-
-    ws.placeImageXY(new TextImage("Press 'Enter' To Go Back to Main Menu", tileSize * 0.4 * UIScale,
-        Color.WHITE), width * tileSize / 2, ((int) (height * tileSize * 0.6)));
-
-    ws.placeImageXY(new TextImage("Press 'ESC' To Quit", tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.7)));
+    if (middlePage == null) {
+      WorldImage page = pageBackground();
+      page = overlayAt(new TextImage("Time Used: " + String.format("%.1f", engine.time) + " Seconds",
+          tileSize * 0.4 * UIScale, Color.WHITE), 0.3, page);
+      page = overlayAt(new TextImage("Score: " + getScore(), tileSize * 0.4 * UIScale,
+          Color.WHITE), 0.4, page);
+      page = overlayAt(new TextImage("High Score: " + getHighestScore(),
+          tileSize * 0.4 * UIScale, Color.WHITE), 0.5, page);
+      page = overlayAt(new TextImage("Press 'Enter' To Go Back to Main Menu",
+          tileSize * 0.4 * UIScale, Color.WHITE), 0.6, page);
+      page = overlayAt(new TextImage("Press 'ESC' To Quit", tileSize * 0.4 * UIScale,
+          Color.WHITE), 0.7, page);
+      middlePage = page;
+    }
+    showPage(middlePage, MIDDLE_PAGE);
   }
 
   /**
-   * Draw the starting page
+   * Draw the starting page, composed once until the high score changes and
+   * placed on a fresh scene
    */
   void drawStartingPage() {
-    int intWidth = (int) ((int) tileSize * width);
-    int intHeight = (int) ((int) tileSize * height);
-
-    ws.placeImageXY(new RectangleImage(intWidth, intHeight, OutlineMode.SOLID, Color.GRAY),
-        width * tileSize / 2, ((int) (height * tileSize * 0.5)));
-
-    ws.placeImageXY(
-        new TextImage("High Score: " + getHighestScore(), tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.70)));
+    if (startingPage == null) {
+      WorldImage page = pageBackground();
+      page = overlayAt(new TextImage("High Score: " + getHighestScore(),
+          tileSize * 0.4 * UIScale, Color.WHITE), 0.70, page);
+      page = overlayAt(new TextImage("Press 'Enter' To Start a Traditional Game",
+          tileSize * 0.4 * UIScale, Color.WHITE), 0.50, page);
+      page = overlayAt(new TextImage("Press 'R' To Start a Hexagon Game",
+          tileSize * 0.4 * UIScale, Color.WHITE), 0.40, page);
+      page = overlayAt(new TextImage("Press 'ESC' To Quit The Game", tileSize * 0.4 * UIScale,
+          Color.WHITE), 0.60, page);
+      startingPage = page;
+    }
+    showPage(startingPage, STARTING_PAGE);
+  }
 
-    ws.placeImageXY(new TextImage("Press 'Enter' To Start a Traditional Game",
-        tileSize * 0.4 * UIScale, Color.WHITE), width * tileSize / 2,
-        ((int) (height * tileSize * 0.50)));
+  /**
+   * The gray background of a page, covering the whole board
+   * 
+   * @return A WorldImage
+   */
+  WorldImage pageBackground() {
+    return new RectangleImage(sceneWidth(), sceneHeight(), OutlineMode.SOLID,
+        Color.GRAY);
+  }
 
-    ws.placeImageXY(
-        new TextImage("Press 'R' To Start a Hexagon Game", tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.40)));
+  /**
+   * Overlay an image on a page, centered horizontally
+   * 
+   * @param image    The image to overlay
+   * @param position Where the center of the image goes, as a fraction of the
+   *                 page height
+   * @param page     The page
+   * @return A WorldImage
+   */
+  WorldImage overlayAt(WorldImage image, double position, WorldImage page) {
+    // The offset moves the page relative to the image, so it is negated
+    return new OverlayOffsetImage(image, 0, -(sceneHeight() * (position - 0.5)), page);
+  }
 
-    ws.placeImageXY(
-        new TextImage("Press 'ESC' To Quit The Game", tileSize * 0.4 * UIScale, Color.WHITE),
-        width * tileSize / 2, ((int) (height * tileSize * 0.60)));
+  /**
+   * Place a composed page on a fresh scene, unless it is already shown
+   * 
+   * @param page   The composed page
+   * @param pageId Which page it is
+   */
+  void showPage(WorldImage page, int pageId) {
+    if (shownPage != pageId) {
+      refrashPage();
+      placeImage(page, sceneWidth() / 2, sceneHeight() / 2);
+      shownPage = pageId;
+    }
   }
 
   /**
    * Refresh every Image on the World Scene
    */
   void refrashPage() {
-    ws = new WorldScene(tileSize * width, tileSize * height);
+    ws = new WorldScene(sceneWidth(), sceneHeight());
+    placedImages = 0;
+    shownPage = NO_PAGE;
   }
 
   /**
@@ -346,12 +904,7 @@ class LightEmAll extends World {
    * @return A boolean
    */
   boolean checkIfAllPowered() {
-    for (GamePiece node : nodes) {
-      if (!node.powered) {
-        return false;
-      }
-    }
-    return true;
+    return engine.isSolved();
   }
 
   /**
@@ -360,34 +913,80 @@ class LightEmAll extends World {
    * @param isHex A boolean, represent if the game board is in Hexagon
    */
   void initGame(boolean isHex) {
-    Random random = new Random();
-    this.randomSeed = random.nextInt(1, 10000);
-    initBoard();
-    this.onUIPage = false;
-    randomnizeTileRotation();
+    this.hexMode = isHex;
+    ReadyBoard ready = null;
+    if (boardPool != null) {
+      ready = boardPool.poll(isHex, width, height);
+    }
+    if (ready != null) {
+      this.randomSeed = ready.seed;
+      if (isHex) {
+        loadHexBoard(ready);
+      }
+      else {
+        loadBoard(ready);
+      }
+      this.onUIPage = false;
+    }
+    else {
+      Random random = new Random();
+      this.randomSeed = random.nextInt(1, 10000);
+      if (isHex) {
+        initHexBoard();
+        this.onUIPage = false;
+        randomnizeHexTileRotation();
+      }
+      else {
+        initBoard();
+        this.onUIPage = false;
+        randomnizeTileRotation();
+      }
+    }
+    if (viewport) {
+      viewX = 0;
+      viewY = 0;
+      clampView();
+    }
+    startMoveLog();
+  }
+
+  /**
+   * Start the MoveLog of the game just set up, written into moveLogDirectory
+   * if there is one from its first move on
+   */
+  void startMoveLog() {
+    undoStack.clear();
+    moveLog = new MoveLog(hexMode, randomSeed, width, height);
+    if (moveLogDirectory != null) {
+      moveLog.file = moveLogDirectory.resolve("game-" + System.currentTimeMillis() + "-"
+          + randomSeed + ".moves");
+    }
+  }
+
+  /**
+   * Write the moves of the game not yet in its file
+   */
+  void flushMoveLog() {
+    if (moveLog != null) {
+      moveLog.flush();
+    }
   }
 
   /**
-   * Get the highest Score in the ranking list
+   * Get the highest Score of every game, 0 before the first
    * 
-   * @return
+   * @return An int
    */
   int getHighestScore() {
-    Collections.sort(ranking);
-    return ranking.get(ranking.size() - 1);
+    return scores.best();
   }
 
   int getScore() {
-    int baseScore = width * height + 100;
-    int difficultyIndex = ((width * height) / 25) * 5;
-    int timeIndex = remainingTimeToScore();
-    int stepIndex = remainingStepToScore();
-
-    return baseScore + difficultyIndex - timeIndex - stepIndex;
+    return engine.score();
   }
 
   int remainingStepToScore() {
-    return (int) (5 * Math.log(steps));
+    return engine.remainingStepToScore();
   }
 
   /**
@@ -396,19 +995,42 @@ class LightEmAll extends World {
    * @return The score to be decreased
    */
   int remainingTimeToScore() {
-    return (int) (3 * Math.log(time));
+    return engine.remainingTimeToScore();
   }
 
   /**
-   * Initialize the board, includes: 1, add n nodes to the nodes and the board (n
-   * = height * width) 2, receive minimum spanning tree from makeLOE() 3, modify
-   * each GamePiece following mst, make sure they are connected correctly 4, call
-   * serApproprateRadius() to set radius of the Power Station
+   * Initialize the board, includes: 1, let the engine generate the board for
+   * randomSeed, with its minimum spanning tree, wiring and radius 2, add n nodes
+   * to the nodes and the board (n = height * width), wired as the engine's board
+   * 3, keep the mst as Edges between those nodes
    */
   void initBoard() {
 
     refrashPage();
 
+    engine.generate(randomSeed, width, height);
+    buildBoard();
+  }
+
+  /**
+   * Start a game on a board generated ahead of time, already scrambled
+   * 
+   * @param ready A square ReadyBoard
+   */
+  void loadBoard(ReadyBoard ready) {
+
+    refrashPage();
+
+    engine.load(ready);
+    buildBoard();
+  }
+
+  /**
+   * Make the GamePieces and the mst Edges of the engine's board
+   */
+  void buildBoard() {
+    this.radius = engine.radius;
+
     this.board = new ArrayList<ArrayList<GamePiece>>();
     this.nodes = new ArrayList<GamePiece>();
 
@@ -424,571 +1046,245 @@ class LightEmAll extends World {
       this.board.add(column);
     }
 
-    this.mst = makeLOE(randomSeed);
+    this.mst = new ArrayList<Edge>(engine.mstSize);
+    for (int i = 0; i < engine.mstSize; i++) {
+      mst.add(new Edge(nodes.get(engine.mstFrom[i]), nodes.get(engine.mstTo[i]),
+          engine.mstWeight[i]));
+    }
 
-    for (GamePiece node : nodes) {
-      for (Edge edge : mst) {
-        if (edge.from.equals(node)) {
-          if (edge.to.col == node.col - 1) {
-            node.left = true;
-            edge.to.right = true;
-          }
-          else if (edge.to.col == node.col + 1) {
-            node.right = true;
-            edge.to.left = true;
-          }
-          else if (edge.to.row == node.row + 1) {
-            node.bottom = true;
-            edge.to.top = true;
-          }
-          else if (edge.to.row == node.row - 1) {
-            node.top = true;
-            edge.to.bottom = true;
-          }
-        }
-        else if (edge.to.equals(node)) {
-          if (edge.from.col == node.col - 1) {
-            node.left = true;
-            edge.from.right = true;
-          }
-          else if (edge.from.col == node.col + 1) {
-            node.right = true;
-            edge.from.left = true;
-          }
-          else if (edge.from.row == node.row + 1) {
-            node.bottom = true;
-            edge.from.top = true;
-          }
-          else if (edge.from.row == node.row - 1) {
-            node.top = true;
-            edge.from.bottom = true;
-          }
-        }
-      }
+    this.dirty = new boolean[width * height];
+    this.dirtyTiles = new int[width * height];
+    this.dirtyCount = 0;
+    engine.bits.clearChanged();
+  }
+
+  /**
+   * Mark every tile the engine changed to be drawn again, the GamePieces read
+   * it from the engine's board
+   */
+  void syncView() {
+    BitBoard bits = engine.bits;
+    for (int i = 0; i < bits.changedCount; i++) {
+      markDirty(bits.changedTiles[i]);
     }
+    bits.clearChanged();
+  }
 
-    setApproprateRadiusValue();
+  /**
+   * Put the power station at (powerRow, powerCol) and update the power from
+   * there
+   */
+  void powerUpdate() {
+    engine.placePowerStation(powerRow, powerCol);
+    syncView();
   }
 
   /**
-   * Make a minimum spanning tree, includes few steps: 1, make a list of edges,
-   * includes all potential edges on the board 2, given each of them a random
-   * weight 3, remove repeated edges 4, with UnionFind, make the mst with Kruskal
-   * algorithm
+   * Move the power station in the given direction, if the wiring allows it
    * 
-   * @return A list of Edges
+   * @param direction LightEmAllEngine.TOP, RIGHT, BOTTOM or LEFT
    */
-  ArrayList<Edge> makeLOE(int randomSeed) {
-    ArrayList<Edge> result = new ArrayList<Edge>();
-    Random random = new Random(randomSeed);
-    for (int row = 0; row < board.size(); row++) {
-      int localHeight = board.size();
-
-      for (int col = 0; col < board.get(row).size(); col++) {
-
-        int localWidth = board.get(row).size();
-        GamePiece currentNode = board.get(row).get(col);
-
-        if (row == 0 && col == 0) {
-          GamePiece rightNode = board.get(row).get(col + 1);
-          GamePiece downNode = board.get(row + 1).get(col);
-          result.add(new Edge(currentNode, rightNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, downNode, random.nextInt(100)));
-        }
-        else if (col == localWidth - 1 && row == 0) {
-          GamePiece leftNode = board.get(row).get(col - 1);
-          GamePiece downNode = board.get(row + 1).get(col);
-          result.add(new Edge(currentNode, leftNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, downNode, random.nextInt(100)));
-        }
-        else if (row == localHeight - 1 && col == localWidth - 1) {
-          GamePiece leftNode = board.get(row).get(col - 1);
-          GamePiece upNode = board.get(row - 1).get(col);
-          result.add(new Edge(currentNode, leftNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, upNode, random.nextInt(100)));
-        }
-        else if (row == localHeight - 1 && col == 0) {
-          GamePiece rightNode = board.get(row).get(col + 1);
-          GamePiece upNode = board.get(row - 1).get(col);
-          result.add(new Edge(currentNode, rightNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, upNode, random.nextInt(100)));
-        }
-        else if (row == 0) {
-          GamePiece rightNode = board.get(row).get(col + 1);
-          GamePiece leftNode = board.get(row).get(col - 1);
-          GamePiece downNode = board.get(row + 1).get(col);
-          result.add(new Edge(currentNode, rightNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, downNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, leftNode, random.nextInt(100)));
-        }
-        else if (row == localHeight - 1) {
-          GamePiece rightNode = board.get(row).get(col + 1);
-          GamePiece leftNode = board.get(row).get(col - 1);
-          GamePiece upNode = board.get(row - 1).get(col);
-          result.add(new Edge(currentNode, rightNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, upNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, leftNode, random.nextInt(100)));
-        }
-        else if (col == 0) {
-          GamePiece rightNode = board.get(row).get(col + 1);
-          GamePiece downNode = board.get(row + 1).get(col);
-          GamePiece upNode = board.get(row - 1).get(col);
-          result.add(new Edge(currentNode, rightNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, upNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, downNode, random.nextInt(100)));
-        }
-        else if (col == localWidth - 1) {
-          GamePiece leftNode = board.get(row).get(col - 1);
-          GamePiece downNode = board.get(row + 1).get(col);
-          GamePiece upNode = board.get(row - 1).get(col);
-          result.add(new Edge(currentNode, leftNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, upNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, downNode, random.nextInt(100)));
-        }
-        else {
-          GamePiece leftNode = board.get(row).get(col - 1);
-          GamePiece rightNode = board.get(row).get(col + 1);
-          GamePiece downNode = board.get(row + 1).get(col);
-          GamePiece upNode = board.get(row - 1).get(col);
-          result.add(new Edge(currentNode, leftNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, upNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, downNode, random.nextInt(100)));
-          result.add(new Edge(currentNode, rightNode, random.nextInt(100)));
-        }
-      }
-    }
-
-    for (int i = 0; i < result.size(); i++) {
-      if (result.get(i) != null) {
-        for (int j = 0; j < result.size(); j++) {
-          if (result.get(j) != null && i != j) {
-            if (result.get(i).ifSameEdge(result.get(j))) {
-              result.set(i, null);
-              break;
-            }
-          }
-        }
-      }
-    }
-
-    ArrayList<Edge> temp = new ArrayList<Edge>();
-
-    for (int i = 0; i < result.size(); i++) {
-      if (result.get(i) != null) {
-        temp.add(result.get(i));
-      }
-    }
-
-    result = temp;
-
-    Collections.sort(result);
-
-    UnionFind uf = new UnionFind(nodes.size());
-
-    ArrayList<Edge> mst = new ArrayList<Edge>();
-
-    for (Edge edge : result) {
-      int x = uf.find(nodes.indexOf(edge.from));
-      int y = uf.find(nodes.indexOf(edge.to));
-      if (x != y) {
-        mst.add(edge);
-        uf.union(x, y);
-      }
-      if (mst.size() == nodes.size() - 1) {
-        break;
-      }
-    }
-
-    result = mst;
-
-    // ---------------------------------------------------------------
-    // Debugging area BELOW:
-    /*
-     * for (Edge edge : result) { System.out.println("Node at col:" + edge.from.col
-     * + " row:" + edge.from.row + " Linked with Node at col:" + edge.to.col +
-     * " row:" + edge.to.row); } System.out.println("Total Number of Edge: " +
-     * result.size());
-     * 
-     * for (Edge edge1 : result) { for (Edge edge2 : result) { if
-     * (edge1.from.equals(edge2.to) && edge1.to.equals(edge2.from)) {
-     * System.out.println("Found repeated Edge"); } } }
-     */
-    // Debugging area ABOVE:
-    // ---------------------------------------------------------------
-
-    return result;
-  }
-
-  /**
-   * A combined method of updatePowerStation() and updatePowerStatus()
-   */
-  void powerUpdate() {
-    updatePowerStation();
-    updatePowerStatus();
-  }
+  void movePowerStation(int direction) {
+    if (moveLog != null) {
+      moveLog.movePower(direction);
+    }
+    int previous = engine.powerRow * width + engine.powerCol;
+    if (engine.movePower(direction)) {
+      undoStack.moved(previous);
+      powerRow = engine.powerRow;
+      powerCol = engine.powerCol;
+      if (viewport) {
+        followPowerStation();
+      }
+      syncView();
+    }
+  }
 
   /**
    * To rotate each tile on the board random times
    */
   void randomnizeTileRotation() {
-    Random random = new Random(randomSeed);
-
-    for (GamePiece gp : nodes) {
-      for (int i = 0; i < random.nextInt(1, 4); i++) {
-        gp.rotate(random.nextBoolean());
-      }
-    }
-
-  }
-
-  /**
-   * through double BFS, find the center of the tree, and set the radius as the
-   * maximum length from the center to a leaf node CALL IT AFTER MST WAS
-   * INITIALIZED
-   */
-  void setApproprateRadiusValue() {
-    this.radius = findRadius(findTheFarthestNode(nodes.get(0)));
+    engine.scramble();
+    syncView();
   }
 
   /**
-   * A generic function, available for all object with equals() overwritten, to
-   * check if a T is in a List of T
+   * Rotate the tile at the given index and its GamePiece, without updating the
+   * power
    * 
-   * @param <T> A generic type
-   * @param lst List of T
-   * @param t   A T
-   * @return A boolean
+   * @param index     Index of a tile (row * width + col)
+   * @param clockwise A boolean, false = left, true = right
    */
-  <T> boolean checkIfExistInList(ArrayList<T> lst, T t) {
-    for (T element : lst) {
-      if (t.equals(element)) {
-        return true;
-      }
-    }
-    return false;
+  void rotateTile(int index, boolean clockwise) {
+    engine.bits.rotate(index, clockwise);
+    syncView();
   }
 
   /**
-   * Given a GamePiece, find out the farthest node of it in a tree
+   * Rotate the GamePiece in the given position, a position on the edge between
+   * two tiles belongs to the tile right or below it
    * 
-   * @param start A GamePiece
-   * @return The Farthest GamePiece
+   * @param position Position from Handler
    */
-  GamePiece findTheFarthestNode(GamePiece start) {
-
-    ArrayList<GamePiece> visited = new ArrayList<GamePiece>();
-
-    Queue<GamePiece> queue = new LinkedList<>();
-
-    queue.add(start);
-    visited.add(start);
-    GamePiece last = start;
-
-    while (!queue.isEmpty()) {
-      last = queue.poll();
-
-      for (GamePiece neighbor : getOriginalNeighbors(last)) {
-        if (!checkIfExistInList(visited, neighbor)) {
-          visited.add(neighbor);
-          queue.add(neighbor);
-        }
+  void rotateGamePiece(Posn position) {
+    if (position.x < 0 || position.y < 0) {
+      return;
+    }
+    int col = position.x / tileSize;
+    int row = position.y / tileSize;
+    if (viewport) {
+      // The view starts left of or above the board when it is smaller
+      col = Math.floorDiv(position.x + viewX, viewTileSize);
+      row = Math.floorDiv(position.y + viewY, viewTileSize);
+    }
+    if (row >= 0 && col >= 0 && row < height && col < width) {
+      if (moveLog != null) {
+        moveLog.rotate(row * width + col);
       }
+      engine.turn(row * width + col);
+      undoStack.rotated(row * width + col);
+      syncView();
     }
-    return last;
   }
 
   /**
-   * Takes a GamePiece, find the GamePiece in the tree that is farthest from it,
-   * the given GamePiece should be result of findTheFarthestNode(GamePiece start)
-   * Then, find the longest path from a certain GamePiece to the given GamePiece
-   * Then, find the middle point of that path, which should be the center of the
-   * tree Then, the length of that path / 2 should be our ideal radius value
+   * Rotate the HexGamePiece in the given position and update the power, the
+   * hex board is centered on the World Scene
    * 
-   * @param start A GamePeice
-   * @return An int
+   * @param position Position from Handler
    */
-  int findRadius(GamePiece start) {
-
-    // (Node, ParentNode)
-    Map<GamePiece, GamePiece> parent = new HashMap<>();
-
-    // This Part BELOW meant to be the second time BFS, the parent should contain
-    // few
-    // paths, one of them is the longest path within the tree
-    Queue<GamePiece> queue = new LinkedList<>();
-
-    queue.add(start);
-    parent.put(start, null);
-    GamePiece last = start;
-
-    while (!queue.isEmpty()) {
-      last = queue.poll();
-
-      for (GamePiece neighbor : getOriginalNeighbors(last)) {
-        if (!parent.containsKey(neighbor)) {
-          parent.put(neighbor, last);
-          queue.add(neighbor);
-        }
+  void rotateHexGamePiece(Posn position) {
+    int index = hexGrid.tileAt(position.x - sceneWidth() / 2.0,
+        position.y - sceneHeight() / 2.0, hexSize);
+    if (index >= 0) {
+      if (moveLog != null) {
+        moveLog.rotate(index);
       }
+      engine.turn(index);
+      undoStack.rotated(index);
+      syncHexView();
     }
-    // This Part ABOVE meant to be the second time BFS, the parent should contain
-    // few
-    // paths, By the end of this part, one of the path is the longest path within
-    // the tree
-
-    ArrayList<GamePiece> path = new ArrayList<>();
-
-    for (GamePiece at = last; at != null; at = parent.get(at)) {
-      path.add(at);
-    }
-
-    return path.size() / 2;
-
   }
 
   /**
-   * Get a list of a GamePiece's neighbors, only those connected with it by edge
+   * Move the hex power station in the given direction, if the wiring allows it
    * 
-   * @param gp A GamePiece
-   * @return A List of GamePiece
+   * @param direction An int, from 0 (north) to 5 (northwest), clockwise
    */
-  ArrayList<GamePiece> getOriginalNeighbors(GamePiece gp) {
-    ArrayList<GamePiece> result = new ArrayList<GamePiece>();
-
-    for (Edge edge : mst) {
-      if (edge.from.equals(gp)) {
-        result.add(edge.to);
-      }
-      else if (edge.to.equals(gp)) {
-        result.add(edge.from);
-      }
+  void moveHexPowerStation(int direction) {
+    if (moveLog != null) {
+      moveLog.movePower(direction);
+    }
+    int previous = engine.station();
+    if (engine.movePower(direction)) {
+      undoStack.moved(previous);
+      powerRow = engine.powerRow;
+      powerCol = engine.powerCol;
+      syncHexView();
     }
-
-    return result;
   }
 
   /**
-   * Getting the list of current neighbor of a GamePiece, based on checking each
-   * tile's up, bottom, left and right, not checking the mst
-   * 
-   * @param gp A GamePiece
-   * @return A List of GemePiece
+   * Undo the last rotation or move of the power station, the power updated
+   * only where it changes. Counts as a step
    */
-  ArrayList<GamePiece> getCurrentNeighbors(GamePiece gp) {
-    ArrayList<GamePiece> result = new ArrayList<GamePiece>();
-
-    if (gp.col != width - 1
-        && gp.checkIfConnected(board.get(gp.row).get(gp.col + 1), height, width)) {
-      result.add(board.get(gp.row).get(gp.col + 1));
-    }
-    if (gp.col != 0 && gp.checkIfConnected(board.get(gp.row).get(gp.col - 1), height, width)) {
-      result.add(board.get(gp.row).get(gp.col - 1));
-    }
-    if (gp.row != 0 && gp.checkIfConnected(board.get(gp.row - 1).get(gp.col), height, width)) {
-      result.add(board.get(gp.row - 1).get(gp.col));
+  void undoMove() {
+    if (moveLog != null) {
+      moveLog.undo();
     }
-    if (gp.row != height - 1
-        && gp.checkIfConnected(board.get(gp.row + 1).get(gp.col), height, width)) {
-      result.add(board.get(gp.row + 1).get(gp.col));
+    if (!undoStack.canUndo()) {
+      return;
     }
-
-    return result;
+    engine.steps++;
+    keepPowerStation(undoStack.undo(engine.bits, engine.power, engine.station()));
+    syncBoard();
   }
 
   /**
-   * Using BFS, calculate the distance from a certain GamePiece with the
-   * PowerStation, if not in range, return -1
-   * 
-   * @param target The GamePiece need to be checked
-   * @return An int
+   * Redo the last move undone. Counts as a step
    */
-  public int calculateDistance(GamePiece target) {
-    if (powerRow == target.row && powerCol == target.col) {
-      return 0;
+  void redoMove() {
+    if (moveLog != null) {
+      moveLog.redo();
     }
-
-    Queue<GamePiece> queue = new LinkedList<>();
-    Map<GamePiece, Integer> distance = new HashMap<>();
-    ArrayList<GamePiece> visited = new ArrayList<>();
-
-    GamePiece start = board.get(powerRow).get(powerCol);
-    queue.offer(start);
-    visited.add(start);
-    distance.put(start, 0);
-
-    while (!queue.isEmpty()) {
-      GamePiece current = queue.poll();
-
-      ArrayList<GamePiece> neighbors = getCurrentNeighbors(current);
-      for (GamePiece neighbor : neighbors) {
-
-        if (!visited.contains(neighbor)) {
-          visited.add(neighbor);
-          int newDistance = distance.get(current) + 1;
-          distance.put(neighbor, newDistance);
-          queue.offer(neighbor);
-
-          if (neighbor.row == target.row && neighbor.col == target.col) {
-            return newDistance;
-          }
-        }
-      }
+    if (!undoStack.canRedo()) {
+      return;
     }
-
-    return -1;
+    engine.steps++;
+    keepPowerStation(undoStack.redo(engine.bits, engine.power, engine.station()));
+    syncBoard();
   }
 
   /**
-   * Rotate the GamePiece in the given position
+   * Keep the power station where an undo or redo left it, the power already
+   * updated
    * 
-   * @param position Position from Handler
+   * @param index Index of the tile of the power station
    */
-  void rotateGamePiece(Posn position) {
-    for (int row = 0; row < board.size(); row++) {
-      for (int col = 0; col < board.get(row).size(); col++) {
-        int y = (row * tileSize);
-        int x = (col * tileSize);
-        if ((position.x >= x && position.x <= x + tileSize)
-            && (position.y >= y && position.y <= y + tileSize)) {
-          board.get(row).get(col).rotate(true);
-        }
-      }
+  void keepPowerStation(int index) {
+    engine.powerRow = index / engine.width;
+    engine.powerCol = index % engine.width;
+    powerRow = engine.powerRow;
+    powerCol = engine.powerCol;
+    if (viewport && !hexMode) {
+      followPowerStation();
     }
   }
 
   /**
-   * Takes a direction, which represented as Integer, 1 = down, 2 = up, left = 4,
-   * right = 3, Check if the neighbor tile exist, if so, check if the path exists,
-   * by checking the left, right, up, bottom of each tile, if all of them exist,
-   * return true, otherwise false
-   * 
-   * @param direction An Integer
-   * @return A boolean
+   * Show every tile the engine changed, on the board being played
    */
-  boolean checkIfCouldMoveThrough(int direction) {
-    for (int row = 0; row < board.size(); row++) {
-      for (int col = 0; col < board.get(row).size(); col++) {
-        if (board.get(row).get(col).powerStation == true) {
-          GamePiece powerStationTile = board.get(row).get(col);
-          if (direction == 1 && powerStationTile.bottom) {
-            if (row + 1 < board.size()) {
-              return board.get(row + 1).get(col).checkIfConnectedWith(direction);
-            }
-          }
-          else if (direction == 2 && powerStationTile.top) {
-            if (row - 1 >= 0) {
-              return board.get(row - 1).get(col).checkIfConnectedWith(direction);
-            }
-          }
-          else if (direction == 3 && powerStationTile.right) {
-            if (col + 1 < board.get(row).size()) {
-              return board.get(row).get(col + 1).checkIfConnectedWith(direction);
-            }
-          }
-          else if (direction == 4 && powerStationTile.left) {
-            if (col - 1 >= 0) {
-              return board.get(row).get(col - 1).checkIfConnectedWith(direction);
-            }
-          }
-        }
-      }
+  void syncBoard() {
+    if (hexMode) {
+      syncHexView();
     }
-    return false;
-  }
-
-  boolean checkIfCouldMoveThroughHex(int direction) {
-    for (int layer = 0; layer < hexBoard.size(); layer++) {
-      for (int item = 0; item < hexBoard.get(layer).size(); item++) {
-        HexGamePiece hex = hexBoard.get(layer).get(item);
-        if (hex.powerStation) {
-          if (direction == 0) { // N
-            return checkConnectionHex(layer - 1, item, hex, direction);
-          }
-          else if (direction == 1) { // NE
-            return checkConnectionHex(layer + 1, item, hex, direction);
-          }
-          else if (direction == 2) { // SE
-            return checkConnectionHex(layer, item + 1, hex, direction);
-          }
-          else if (direction == 3) { // S
-            return checkConnectionHex(layer + 1, item + 1, hex, direction);
-          }
-          else if (direction == 4) { // SW
-            return checkConnectionHex(layer, item - 1, hex, direction);
-          }
-          else if (direction == 5) { // SN
-            return checkConnectionHex(layer - 1, item - 1, hex, direction);
-          }
-        }
-      }
+    else {
+      syncView();
     }
-    return false;
   }
 
   /**
-   * Update the status of power station
+   * Update the Status of weather powered for GamePiece, with a single BFS from
+   * the power station over the whole board
    */
-  void updatePowerStation() {
-    for (int row = 0; row < board.size(); row++) {
-      for (int col = 0; col < board.get(row).size(); col++) {
-        if (col == powerCol && row == powerRow) {
-          // System.out.println("PowerStation updated at " + "Col:" + col + " " + "Row:" +
-          // row);
-          board.get(row).get(col).setPowerStation();
-        }
-      }
-    }
+  void updatePowerStatus() {
+    engine.power.recompute(engine.powerRow * width + engine.powerCol);
+    syncView();
   }
 
   /**
-   * Update the Status of weather powered for GamePiece
+   * Initialize the hex board, includes: 1, let the engine generate the hex
+   * board for randomSeed, height rings of tiles on axial coordinates (see
+   * HexGrid) wired along its minimum spanning tree, with the radius of the
+   * power 2, add the tiles to hexNodes and hexBoard, one list per ring 3, keep
+   * the mst as HexEdges between them
    */
-  void updatePowerStatus() {
-    for (int row = 0; row < board.size(); row++) {
-      for (int col = 0; col < board.get(row).size(); col++) {
-        if (calculateDistance(board.get(row).get(col)) >= 0
-            && calculateDistance(board.get(row).get(col)) <= radius * 0.2) {
-          board.get(row).get(col).powerUp(5);
-        }
-        else if (calculateDistance(board.get(row).get(col)) >= radius * 0.2
-            && calculateDistance(board.get(row).get(col)) <= radius * 0.4) {
-          board.get(row).get(col).powerUp(4);
-        }
-        else if (calculateDistance(board.get(row).get(col)) >= radius * 0.4
-            && calculateDistance(board.get(row).get(col)) <= radius * 0.6) {
-          board.get(row).get(col).powerUp(3);
-        }
-        else if (calculateDistance(board.get(row).get(col)) >= radius * 0.6
-            && calculateDistance(board.get(row).get(col)) <= radius * 0.8) {
-          board.get(row).get(col).powerUp(2);
-        }
-        else if (calculateDistance(board.get(row).get(col)) >= radius * 0.8
-            && calculateDistance(board.get(row).get(col)) <= radius) {
-          board.get(row).get(col).powerUp(1);
-        }
-        else {
-          board.get(row).get(col).powerDown();
-        }
-      }
-    }
+  void initHexBoard() {
+    engine.generateHex(randomSeed, height);
+    buildHexPieces();
   }
 
   /**
-   * Remove powerStation from the board
+   * Start a game on a hex board generated ahead of time, already scrambled
+   * 
+   * @param ready A hexagon ReadyBoard
    */
-  void removeOldPowerStation() {
-    for (ArrayList<GamePiece> logp : board) {
-      for (GamePiece gp : logp) {
-        if (gp.powerStation) {
-          gp.powerStation = false;
-        }
-      }
-    }
+  void loadHexBoard(ReadyBoard ready) {
+    engine.load(ready);
+    buildHexPieces();
   }
 
-  void initHexBoard() {
+  /**
+   * Make the rings of HexGamePieces and the mst HexEdges of the engine's hex
+   * board, the power station in the center
+   */
+  void buildHexPieces() {
+    this.hexGrid = engine.grid;
+    this.radius = engine.radius;
     hexBoard = new ArrayList<>();
     hexNodes = new ArrayList<>();
+    hexSize = (int) Math.max(1, Math.min(sceneWidth() / (3.0 * (height - 1) + 2),
+        sceneHeight() / (HexGrid.SQRT3 * (2 * height - 1))));
 
     for (int layer = 0; layer < this.height; layer++) {
       int itemsInLayer;
@@ -1009,151 +1305,240 @@ class LightEmAll extends World {
       }
       this.hexBoard.add(newLayer);
     }
+    powerRow = 0;
+    powerCol = 0;
 
-    this.hexMst = makeHexLOE(randomSeed);
-
-    for (HexEdge edge : hexMst) {
-      int layerDiff = Math.abs(edge.from.layer - edge.to.layer);
-      if (layerDiff == 0) {
-        sameLayerConnections(edge);
-      }
-      else if (layerDiff == 1) {
-        differentLayerConnections(edge);
-      }
+    this.hexMst = new ArrayList<HexEdge>(engine.mstSize);
+    for (int i = 0; i < engine.mstSize; i++) {
+      hexMst.add(new HexEdge(hexNodes.get(engine.mstFrom[i]), hexNodes.get(engine.mstTo[i]),
+          engine.mstWeight[i]));
     }
+    engine.bits.clearChanged();
   }
 
-  void sameLayerConnections(HexEdge edge) {
-    int indexDiff = edge.to.item - edge.from.item;
-    if (indexDiff == 1 || indexDiff == -1) {
-      edge.from.southeast = true;
-      edge.to.southwest = true;
-    }
-    else {
-
-    }
+  /**
+   * Update the power from the hex power station, only the tiles it reached
+   * before and reaches now are recomputed
+   */
+  void hexPowerUpdate() {
+    engine.placePowerStation(engine.powerRow, engine.powerCol);
+    syncHexView();
   }
 
-  void differentLayerConnections(HexEdge edge) {
-    if (edge.from.layer < edge.to.layer) {
-      edge.from.northeast = true;
-      edge.to.southwest = true;
-    }
-    else {
-      edge.from.southwest = true;
-      edge.to.northeast = true;
-    }
+  /**
+   * Update the Status of weather powered for HexGamePiece, with a single BFS
+   * from the hex power station over the whole board
+   */
+  void updateHexPowerStatus() {
+    engine.power.recompute(engine.station());
+    syncHexView();
   }
 
-  ArrayList<HexEdge> makeHexLOE(int randomSeed) {
-    ArrayList<HexEdge> result = new ArrayList<HexEdge>();
-    Random random = new Random(randomSeed);
-    for (int layer = 0; layer < hexBoard.size(); layer++) {
-      int numItemsInLayer = hexBoard.get(layer).size();
+  /**
+   * Forget the hex tiles the engine changed, the whole hex board is drawn
+   * again after every move and the HexGamePieces read it from the engine's
+   * board
+   */
+  void syncHexView() {
+    engine.bits.clearChanged();
+  }
 
-      for (int item = 0; item < numItemsInLayer; item++) {
-        HexGamePiece currentHexNode = hexBoard.get(layer).get(item);
+  /**
+   * Get the index of a HexGamePiece in hexNodes and hexGrid
+   * 
+   * @param hex A HexGamePiece
+   * @return An int
+   */
+  int hexIndex(HexGamePiece hex) {
+    return hex.index();
+  }
 
-        int prev = item - 1;
-        if (prev < 0) {
-          prev += numItemsInLayer;
-        }
-        int next = (item + 1) % numItemsInLayer;
+  /**
+   * To rotate each hex tile on the board random times
+   */
+  void randomnizeHexTileRotation() {
+    engine.scramble();
+    syncHexView();
+  }
 
-        result.add(addHexEdge(currentHexNode, hexBoard.get(layer).get(prev), random.nextInt(100)));
-        result.add(addHexEdge(currentHexNode, hexBoard.get(layer).get(next), random.nextInt(100)));
+  /**
+   * Draw every hex tile, the hex board is centered on the World Scene
+   */
+  void drawHexBoard() {
+    refrashPage();
+    int hexWireWidth = Math.max(1, wireWidth * hexSize / tileSize);
+    for (int i = 0; i < hexNodes.size(); i++) {
+      placeImage(hexNodes.get(i).tileRendererHex(hexSize, hexWireWidth),
+          (int) Math.round(sceneWidth() / 2.0 + hexGrid.centerX(i, hexSize)),
+          (int) Math.round(sceneHeight() / 2.0 + hexGrid.centerY(i, hexSize)));
+    }
+  }
 
-        if (layer < hexBoard.size() - 1) {
-          int outerLayerSize = hexBoard.get(layer + 1).size();
-          int firstOuterNeighbor = (item * 2) % outerLayerSize;
-          int secondOuterNeighbor = (firstOuterNeighbor + 1) % outerLayerSize;
+  /**
+   * Get the image of a square tile from the sprite cache, rendering it the
+   * first time it is asked for
+   * 
+   * @param size         The size of the tile
+   * @param wireWidth    The width of the wire
+   * @param mask         The wires of the tile, see BitBoard
+   * @param powerLevel   The power level, from 0 to 5
+   * @param powerStation If the power station is on the tile
+   * @return A WorldImage
+   */
+  WorldImage tileSprite(int size, int wireWidth, int mask, int powerLevel,
+      boolean powerStation) {
+    checkSpriteSize(size, wireWidth);
+    int key = spriteKey(powerLevel, powerStation) * 16 + mask;
+    if (tileSprites[key] == null) {
+      tileSprites[key] = squareTileImage(size, wireWidth, mask,
+          RasterBoard.WIRE_COLORS[powerLevel], powerStation);
+    }
+    return tileSprites[key];
+  }
 
-          result.add(addHexEdge(currentHexNode, hexBoard.get(layer + 1).get(firstOuterNeighbor),
-              random.nextInt(100)));
-          result.add(addHexEdge(currentHexNode, hexBoard.get(layer + 1).get(secondOuterNeighbor),
-              random.nextInt(100)));
-        }
+  /**
+   * Get the image of a hexagon tile from the sprite cache, rendering it the
+   * first time it is asked for
+   * 
+   * @param size         The side length of the hexagon
+   * @param wireWidth    The width of the wire
+   * @param mask         The wires of the tile, see BitBoard
+   * @param powerLevel   The power level, from 0 to 5
+   * @param powerStation If the power station is on the tile
+   * @return A WorldImage
+   */
+  WorldImage hexSprite(int size, int wireWidth, int mask, int powerLevel,
+      boolean powerStation) {
+    checkSpriteSize(size, wireWidth);
+    int key = spriteKey(powerLevel, powerStation) * 64 + mask;
+    if (hexSprites[key] == null) {
+      hexSprites[key] = hexTileImage(size, wireWidth, mask,
+          RasterBoard.WIRE_COLORS[powerLevel], powerStation);
+    }
+    return hexSprites[key];
+  }
 
-        if (layer > 0) {
-          int innerLayerSize = hexBoard.get(layer - 1).size();
-          int innerNeighbor = item / 2;
-          if (innerNeighbor < innerLayerSize) {
-            result.add(addHexEdge(currentHexNode, hexBoard.get(layer - 1).get(innerNeighbor),
-                random.nextInt(100)));
-          }
-        }
-      }
+  /**
+   * Get the part of the sprite key shared by squares and hexagons, a power
+   * level out of range is drawn as not powered
+   * 
+   * @param powerLevel   The power level
+   * @param powerStation If the power station is on the tile
+   * @return An int, from 0 to 11
+   */
+  int spriteKey(int powerLevel, boolean powerStation) {
+    int level = powerLevel;
+    if (level < 0 || level > 5) {
+      level = 0;
     }
-
-    for (int i = 0; i < result.size(); i++) {
-      if (result.get(i) != null) {
-        for (int j = 0; j < result.size(); j++) {
-          if (result.get(j) != null && i != j) {
-            if (result.get(i).ifSameHexEdge(result.get(j))) {
-              result.set(i, null);
-              break;
-            }
-          }
-        }
-      }
+    if (powerStation) {
+      return 6 + level;
     }
+    return level;
+  }
 
-    ArrayList<HexEdge> temp = new ArrayList<HexEdge>();
-
-    for (int i = 0; i < result.size(); i++) {
-      if (result.get(i) != null) {
-        temp.add(result.get(i));
-      }
+  /**
+   * Drop every cached sprite if they were rendered at another size
+   * 
+   * @param size      The size of the tile
+   * @param wireWidth The width of the wire
+   */
+  void checkSpriteSize(int size, int wireWidth) {
+    if (size != spriteSize || wireWidth != spriteWireWidth) {
+      tileSprites = new WorldImage[2 * 6 * 16];
+      hexSprites = new WorldImage[2 * 6 * 64];
+      spriteSize = size;
+      spriteWireWidth = wireWidth;
     }
+  }
 
-    result = temp;
+  /**
+   * To render a square tile
+   * 
+   * @param size            Size of tile
+   * @param wireWidth       Width of wire
+   * @param mask            The wires of the tile, see BitBoard
+   * @param wireColor       Color of the wire
+   * @param hasPowerStation If has Power Station
+   * @return A WorldImage
+   */
+  WorldImage squareTileImage(int size, int wireWidth, int mask, Color wireColor,
+      boolean hasPowerStation) {
+    // Start tile image off as a blue square with a wire-width square in the middle,
+    // to make image "cleaner" (will look strange if tile has no wire, but that
+    // can't be)
+    WorldImage image = new OverlayImage(
+        new RectangleImage(wireWidth, wireWidth, OutlineMode.SOLID, wireColor),
+        new RectangleImage(size, size, OutlineMode.SOLID, Color.DARK_GRAY));
+    WorldImage vWire = new RectangleImage(wireWidth, (size + 1) / 2, OutlineMode.SOLID,
+        wireColor);
+    WorldImage hWire = new RectangleImage((size + 1) / 2, wireWidth, OutlineMode.SOLID,
+        wireColor);
+
+    if ((mask & BitBoard.TOP) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, 0, image);
+    }
+    if ((mask & BitBoard.RIGHT) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE, hWire, 0, 0, image);
+    }
+    if ((mask & BitBoard.BOTTOM) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM, vWire, 0, 0, image);
+    }
+    if ((mask & BitBoard.LEFT) != 0) {
+      image = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE, hWire, 0, 0, image);
+    }
+    if (hasPowerStation) {
+      image = new OverlayImage(new OverlayImage(
+          new StarImage(size / 3, 7, OutlineMode.OUTLINE, new Color(255, 128, 0)),
+          new StarImage(size / 3, 7, OutlineMode.SOLID, new Color(0, 255, 255))), image);
+    }
+    return image;
+  }
 
-    Collections.sort(result);
+  /**
+   * To render a hexagon tile
+   * 
+   * @param size            Side length of the hexagon
+   * @param wireWidth       Width of wire
+   * @param mask            The wires of the tile, see BitBoard
+   * @param wireColor       Color of the wire
+   * @param hasPowerStation If has Power Station
+   * @return A WorldImage
+   */
+  WorldImage hexTileImage(int size, int wireWidth, int mask, Color wireColor,
+      boolean hasPowerStation) {
 
-    UnionFind uf = new UnionFind(nodes.size());
+    WorldImage hex = new HexagonImage(size, OutlineMode.SOLID, Color.DARK_GRAY);
 
-    ArrayList<Edge> mst = new ArrayList<Edge>();
+    // The north wire on a see-through hexagon, so it turns about the center of the tile
+    WorldImage vWire = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP,
+        new RectangleImage(wireWidth, size / 2, OutlineMode.SOLID, wireColor), 0, -size / 4,
+        new HexagonImage(size, OutlineMode.SOLID, RasterBoard.CLEAR));
 
-    for (HexEdge hexEdge : result) {
-      int x = uf.find(nodes.indexOf(hexEdge.from));
-      int y = uf.find(nodes.indexOf(hexEdge.to));
-      if (x != y) {
-        hexMst.add(hexEdge);
-        uf.union(x, y);
-      }
-      if (mst.size() == nodes.size() - 1) {
-        break;
+    // One wire per direction, north first, each a sixth of a turn further
+    for (int direction = 0; direction < 6; direction++) {
+      if ((mask & (1 << direction)) != 0) {
+        hex = new OverlayImage(new RotateImage(vWire, 60 * direction), hex);
       }
     }
+    if (hasPowerStation) {
+      hex = new OverlayImage(new OverlayImage(
+          new StarImage(size / 3, 7, OutlineMode.OUTLINE, new Color(255, 128, 0)),
+          new StarImage(size / 3, 7, OutlineMode.SOLID, new Color(0, 255, 255))), hex);
+    }
 
-    result = hexMst;
-
-    return result;
-  }
-
-  HexEdge addHexEdge(HexGamePiece from, HexGamePiece to, int weight) {
-    return new HexEdge(from, to, weight);
+    return hex;
   }
 
   /**
-   * Represent a Game Piece
+   * Represent a Game Piece, a view of one tile of the engine's board: its wires
+   * and power are read from and written to the BitBoard, nothing is kept here
    */
   class GamePiece {
     // in logical coordinates, with the origin
     // at the top-left corner of the screen
     int row;
     int col;
-    // whether this GamePiece is connected to the
-    // adjacent left, right, top, or bottom pieces
-    boolean left;
-    boolean right;
-    boolean top;
-    boolean bottom;
-    // whether the power station is on this piece
-    boolean powerStation;
-    boolean powered;
-
-    int powerLevel;
 
     /**
      * To render a tile
@@ -1166,29 +1551,7 @@ class LightEmAll extends World {
      * @return A image of the tile
      */
     WorldImage tileRenderer(int size, int wireWidth, int powerCol, int powerRow, int radius) {
-      Color brightYellow = new Color(255, 255, 0);
-      Color lighterYellow = new Color(255, 230, 0);
-      Color mediumYellow = new Color(255, 204, 0);
-      Color darkerYellow = new Color(255, 179, 0);
-      Color darkYellow = new Color(255, 153, 0);
-      if (powerLevel == 1) {
-        return tileImage(size, wireWidth, darkYellow, this.powerStation);
-      }
-      else if (powerLevel == 2) {
-        return tileImage(size, wireWidth, darkerYellow, this.powerStation);
-      }
-      else if (powerLevel == 3) {
-        return tileImage(size, wireWidth, mediumYellow, this.powerStation);
-      }
-      else if (powerLevel == 4) {
-        return tileImage(size, wireWidth, lighterYellow, this.powerStation);
-      }
-      else if (powerLevel == 5) {
-        return tileImage(size, wireWidth, brightYellow, this.powerStation);
-      }
-      else {
-        return tileImage(size, wireWidth, Color.GRAY, this.powerStation);
-      }
+      return tileSprite(size, wireWidth, mask(), powerLevel(), powerStation());
     }
 
     /**
@@ -1201,85 +1564,69 @@ class LightEmAll extends World {
      * @return A WorldImage
      */
     WorldImage tileImage(int size, int wireWidth, Color wireColor, boolean hasPowerStation) {
-      // Start tile image off as a blue square with a wire-width square in the middle,
-      // to make image "cleaner" (will look strange if tile has no wire, but that
-      // can't be)
-      WorldImage image = new OverlayImage(
-          new RectangleImage(wireWidth, wireWidth, OutlineMode.SOLID, wireColor),
-          new RectangleImage(size, size, OutlineMode.SOLID, Color.DARK_GRAY));
-      WorldImage vWire = new RectangleImage(wireWidth, (size + 1) / 2, OutlineMode.SOLID,
-          wireColor);
-      WorldImage hWire = new RectangleImage((size + 1) / 2, wireWidth, OutlineMode.SOLID,
-          wireColor);
+      return squareTileImage(size, wireWidth, mask(), wireColor, hasPowerStation);
+    }
 
-      if (this.top) {
-        image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, 0, image);
-      }
-      if (this.right) {
-        image = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE, hWire, 0, 0, image);
-      }
-      if (this.bottom) {
-        image = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM, vWire, 0, 0, image);
-      }
-      if (this.left) {
-        image = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE, hWire, 0, 0, image);
-      }
-      if (hasPowerStation) {
-        image = new OverlayImage(new OverlayImage(
-            new StarImage(size / 3, 7, OutlineMode.OUTLINE, new Color(255, 128, 0)),
-            new StarImage(size / 3, 7, OutlineMode.SOLID, new Color(0, 255, 255))), image);
-      }
-      // System.out.println("Image Placed");
-      return image;
+    /**
+     * Check if a tile is within the radius of power
+     * 
+     * @param powerCol powerCol
+     * @param powerRow powerRow
+     * @param radius   Radius of power
+     * @return A boolean
+     */
+    boolean checkIfWithinPowerRadius(int powerCol, int powerRow, int radius) {
+      int distance = Math.abs(this.col - powerCol) + Math.abs(this.row - powerRow);
+      return distance <= radius;
     }
 
     /**
-     * To set the power sattion on specific tile
+     * Get the index of this tile in the engine's board
+     * 
+     * @return An int, row * width + col
      */
-    void setPowerStation() {
-      this.powerStation = true;
+    int index() {
+      return row * width + col;
     }
 
     /**
-     * Check if a tile is within the radius of power
+     * Check if the power station is on this tile
      * 
-     * @param powerCol powerCol
-     * @param powerRow powerRow
-     * @param radius   Radius of power
-     * @return a float
+     * @return A boolean
      */
-    double checkIfWithinPowerRadius(int powerCol, int powerRow, int radius) {
-      double distance = Math.abs(this.col - powerCol) + Math.abs(this.row - powerRow);
-      return ((double) radius) - distance;
+    boolean powerStation() {
+      return index() == engine.station();
     }
 
-    boolean checkIfConnectedWith(int direction) {
-      if (direction == 1 && top) {
-        return true;
-      }
-      else if (direction == 2 && bottom) {
-        return true;
-      }
-      else if (direction == 3 && left) {
-        return true;
-      }
-      else if (direction == 4 && right) {
-        return true;
-      }
-      return false;
+    /**
+     * Check if this tile is powered
+     * 
+     * @return A boolean
+     */
+    boolean powered() {
+      return powerLevel() > 0;
+    }
+
+    /**
+     * Get the power level of this tile
+     * 
+     * @return An int from 0 to 5
+     */
+    int powerLevel() {
+      return engine.bits.level(index());
     }
 
     /**
-     * To set the powered as true
+     * To set the power level of this tile
+     * 
+     * @param powerLevel An int from 1 to 5
      */
     void powerUp(int powerLevel) {
-      this.powered = true;
-      this.powerLevel = powerLevel;
+      engine.bits.setLevel(index(), powerLevel);
     }
 
     void powerDown() {
-      this.powered = false;
-      this.powerLevel = 0;
+      engine.bits.setLevel(index(), 0);
     }
 
     /**
@@ -1288,158 +1635,185 @@ class LightEmAll extends World {
      * @param direction A boolean
      */
     void rotate(boolean direction) {
-      if (direction) {
-        boolean temp = this.top;
-        this.top = this.left;
-        this.left = this.bottom;
-        this.bottom = this.right;
-        this.right = temp;
-      }
-      else {
-        boolean temp = this.top;
-        this.top = this.right;
-        this.right = this.bottom;
-        this.bottom = this.left;
-        this.left = temp;
-      }
+      engine.bits.rotate(index(), direction);
     }
 
-    public boolean equals(GamePiece other) {
-      return this.top == other.top && this.left == other.left && this.bottom == other.bottom
-          && this.right == other.right && this.col == other.col && this.row == other.row;
+    /**
+     * Get the wires of this GamePiece as a 4 bit mask, see BitBoard
+     * 
+     * @return An int
+     */
+    int mask() {
+      return engine.bits.mask(index());
     }
 
     /**
-     * To check if a tile is connnected with a given tile
+     * Set the wires of this GamePiece from a 4 bit mask, see BitBoard
      * 
-     * @param other A GamePiece
-     * @return A boolean
+     * @param mask An int
      */
-    boolean checkIfConnected(GamePiece other, int height, int width) {
-      // Check right connection
-      if (this.col != width - 1 && this.col + 1 == other.col && this.row == other.row) {
-        return this.right && other.left;
-      }
-      // Check left connection
-      if (this.col != 0 && this.col - 1 == other.col && this.row == other.row) {
-        return this.left && other.right;
-      }
-      // Check bottom connection
-      if (this.row != height - 1 && this.row + 1 == other.row && this.col == other.col) {
-        return this.bottom && other.top;
+    void setMask(int mask) {
+      engine.bits.setMask(index(), mask);
+    }
+
+    // Whether this GamePiece is connected to the adjacent left, right, top or
+    // bottom piece, read from and written to its mask
+    boolean left() {
+      return (mask() & BitBoard.LEFT) != 0;
+    }
+
+    boolean right() {
+      return (mask() & BitBoard.RIGHT) != 0;
+    }
+
+    boolean top() {
+      return (mask() & BitBoard.TOP) != 0;
+    }
+
+    boolean bottom() {
+      return (mask() & BitBoard.BOTTOM) != 0;
+    }
+
+    void setLeft(boolean left) {
+      setWire(BitBoard.LEFT, left);
+    }
+
+    void setRight(boolean right) {
+      setWire(BitBoard.RIGHT, right);
+    }
+
+    void setTop(boolean top) {
+      setWire(BitBoard.TOP, top);
+    }
+
+    void setBottom(boolean bottom) {
+      setWire(BitBoard.BOTTOM, bottom);
+    }
+
+    /**
+     * Connect or disconnect one side of this GamePiece
+     * 
+     * @param side  A side, see BitBoard
+     * @param wired If the side is connected
+     */
+    void setWire(int side, boolean wired) {
+      if (wired) {
+        setMask(mask() | side);
       }
-      // Check top connection
-      if (this.row != 0 && this.row - 1 == other.row && this.col == other.col) {
-        return this.top && other.bottom;
+      else {
+        setMask(mask() & ~side);
       }
-      return false; // No connection if none of the conditions are met
+    }
+
+    public boolean equals(GamePiece other) {
+      return this.mask() == other.mask() && this.col == other.col && this.row == other.row;
     }
   }
 
+  /**
+   * Represent a hexagon Game Piece, a view of one tile of the engine's hex
+   * board, as GamePiece is of a square one
+   */
   class HexGamePiece {
     int layer;
     int item;
-    boolean north, northeast, southeast, south, southwest, northwest;
-    boolean powerStation;
-    boolean powered;
-    int powerLevel;
 
     void rotateHexGamePiece() {
-      boolean temp = north;
-      north = northwest;
-      northwest = southwest;
-      southwest = south;
-      south = southeast;
-      southeast = northeast;
-      northeast = temp;
+      engine.bits.rotate(index(), true);
     }
 
-    WorldImage tileRendererHex(int size, int wireWidth) {
-      Color brightYellow = new Color(255, 255, 0);
-      Color lighterYellow = new Color(255, 230, 0);
-      Color mediumYellow = new Color(255, 204, 0);
-      Color darkerYellow = new Color(255, 179, 0);
-      Color darkYellow = new Color(255, 153, 0);
-      if (powerLevel == 1) {
-        return tileImageHex(size, wireWidth, darkYellow, this.powerStation);
-      }
-      else if (powerLevel == 2) {
-        return tileImageHex(size, wireWidth, darkerYellow, this.powerStation);
-      }
-      else if (powerLevel == 3) {
-        return tileImageHex(size, wireWidth, mediumYellow, this.powerStation);
-      }
-      else if (powerLevel == 4) {
-        return tileImageHex(size, wireWidth, lighterYellow, this.powerStation);
-      }
-      else if (powerLevel == 5) {
-        return tileImageHex(size, wireWidth, brightYellow, this.powerStation);
-      }
-      else {
-        return tileImageHex(size, wireWidth, Color.GRAY, this.powerStation);
-      }
+    /**
+     * Get the index of this tile in the engine's board and in hexGrid
+     * 
+     * @return An int
+     */
+    int index() {
+      return HexGrid.tileCount(layer) + item;
     }
 
-    WorldImage tileImageHex(int size, int wireWidth, Color wireColor, boolean hasPowerStation) {
+    /**
+     * Check if the power station is on this tile
+     * 
+     * @return A boolean
+     */
+    boolean powerStation() {
+      return index() == engine.station();
+    }
 
-      WorldImage hex = new HexagonImage(size, OutlineMode.SOLID, wireColor);
+    /**
+     * Get the power level of this tile
+     * 
+     * @return An int from 0 to 5
+     */
+    int powerLevel() {
+      return engine.bits.level(index());
+    }
 
-      WorldImage vWire = new RectangleImage(wireWidth, size / 2, OutlineMode.SOLID, wireColor);
+    /**
+     * Get the wires of this HexGamePiece as a 6 bit mask, see BitBoard
+     * 
+     * @return An int
+     */
+    int mask() {
+      return engine.bits.mask(index());
+    }
 
-      if (this.north) {
-        hex = new RotateImage(
-            new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, -size / 4, hex), 0);
-      }
-      if (this.northeast) {
-        hex = new RotateImage(
-            new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, -size / 4, hex),
-            60);
-      }
-      if (this.southeast) {
-        hex = new RotateImage(
-            new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, -size / 4, hex),
-            120);
-      }
-      if (this.south) {
-        hex = new RotateImage(
-            new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, -size / 4, hex),
-            180);
-      }
-      if (this.southwest) {
-        hex = new RotateImage(
-            new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, -size / 4, hex),
-            240);
-      }
-      if (this.northwest) {
-        hex = new RotateImage(
-            new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP, vWire, 0, -size / 4, hex),
-            300);
-      }
-      if (hasPowerStation) {
-        hex = new OverlayImage(new OverlayImage(
-            new StarImage(size / 3, 7, OutlineMode.OUTLINE, new Color(255, 128, 0)),
-            new StarImage(size / 3, 7, OutlineMode.SOLID, new Color(0, 255, 255))), hex);
-      }
+    /**
+     * Set the wires of this HexGamePiece from a 6 bit mask, see BitBoard
+     * 
+     * @param mask An int
+     */
+    void setMask(int mask) {
+      engine.bits.setMask(index(), mask);
+    }
+
+    // Whether this HexGamePiece is connected to each of its six neighbors and
+    // powered, read from the engine's board
+    boolean north() {
+      return (mask() & BitBoard.NORTH) != 0;
+    }
+
+    boolean northeast() {
+      return (mask() & BitBoard.NORTHEAST) != 0;
+    }
+
+    boolean southeast() {
+      return (mask() & BitBoard.SOUTHEAST) != 0;
+    }
+
+    boolean south() {
+      return (mask() & BitBoard.SOUTH) != 0;
+    }
+
+    boolean southwest() {
+      return (mask() & BitBoard.SOUTHWEST) != 0;
+    }
+
+    boolean northwest() {
+      return (mask() & BitBoard.NORTHWEST) != 0;
+    }
+
+    boolean powered() {
+      return powerLevel() > 0;
+    }
 
-      return hex;
+    WorldImage tileRendererHex(int size, int wireWidth) {
+      return hexSprite(size, wireWidth, mask(), powerLevel(), powerStation());
+    }
+
+    WorldImage tileImageHex(int size, int wireWidth, Color wireColor, boolean hasPowerStation) {
+      return hexTileImage(size, wireWidth, mask(), wireColor, hasPowerStation);
     }
 
     /**
-     * Check if the hex and the HexGamePeice at given layer and item are connected
-     * at the given direction
+     * Check if this HexGamePiece and its neighbor in the given direction are
+     * connected
      * 
-     * @param layer     The layer of a HexGamePeice
-     * @param item      The item of a HexGamePiece
-     * @param hex       A HexGamePiece
-     * @param direction An int, from 0 to 5
+     * @param direction An int, from 0 (north) to 5 (northwest), clockwise
      * @return A boolean
      */
-    boolean checkConnectionHex(int layer, int item, HexGamePiece hex, int direction) {
-      if (layer >= 0 && layer < hexBoard.size() && item >= 0 && item < hexBoard.get(layer).size()) {
-        HexGamePiece neighbor = hexBoard.get(layer).get(item);
-        return hex.checkIfConnectedWithHex(neighbor, direction);
-      }
-      return false;
+    boolean checkConnectionHex(int direction) {
+      return engine.bits.connectedNeighbor(index(), direction) >= 0;
     }
 
     /**
@@ -1450,26 +1824,9 @@ class LightEmAll extends World {
      * @return A boolean
      */
     boolean checkIfConnectedWithHex(HexGamePiece hex, int direction) {
-      if (direction == 0) { // N
-        return this.north && hex.south;
-      }
-      else if (direction == 1) { // NE
-        return this.northeast && hex.southwest;
-      }
-      else if (direction == 2) { // SE
-        return this.southeast && hex.northwest;
-      }
-      else if (direction == 3) { // S
-        return this.south && hex.north;
-      }
-      else if (direction == 4) { // SW
-        return this.southwest && hex.northeast;
-      }
-      else if (direction == 5) { // SE
-        return this.southeast && hex.northwest;
-      }
+      return (this.mask() & (1 << direction)) != 0
+          && (hex.mask() & (1 << HexGrid.OPPOSITE[direction])) != 0;
     }
-
   }
 
   /**
@@ -1531,66 +1888,6 @@ class LightEmAll extends World {
     }
   }
 
-  /**
-   * Represent a UnionFind structure, used in making minimum spanning tree
-   */
-  class UnionFind {
-    int[] parent; // The array that contains index -> parent of node on that index on nodes
-    int[] rank; // The array that conatains ranks of the node on the index
-
-    /**
-     * The constructor
-     * 
-     * @param n An int
-     */
-    UnionFind(int n) {
-      parent = new int[n];
-      rank = new int[n];
-
-      for (int i = 0; i < n; i++) {
-        parent[i] = i;
-        rank[i] = 0;
-      }
-    }
-
-    /**
-     * Determine if two nodes have one parent in the tree
-     * 
-     * @param i An index
-     * @return A boolean
-     */
-    int find(int i) {
-      if (parent[i] != i) {
-        parent[i] = find(parent[i]);
-      }
-      return parent[i];
-    }
-
-    /**
-     * Combine two nodes, make their parent the same
-     * 
-     * @param x Index of a node
-     * @param y Index of another node
-     */
-    void union(int x, int y) {
-      int rootX = find(x);
-      int rootY = find(y);
-      if (rootX != rootY) {
-        if (rank[rootX] > rank[rootY]) {
-          parent[rootY] = rootX;
-        }
-        else if (rank[rootX] < rank[rootY]) {
-          parent[rootX] = rootY;
-        }
-        else {
-          parent[rootY] = rootX;
-          rank[rootX]++;
-        }
-      }
-    }
-
-  }
-
   class ExamplesLightEmAll {
     GamePiece piece;
     LightEmAll game;
@@ -1604,41 +1901,42 @@ class LightEmAll extends World {
       int wireWidth = 10;
 
       game = new LightEmAll(width, height, tileSize, wireWidth);
+      game.initBoard();
 
       piece = game.board.get(2).get(2);
 
-      piece.left = false;
-      piece.right = false;
-      piece.top = false;
-      piece.bottom = false;
+      piece.setLeft(false);
+      piece.setRight(false);
+      piece.setTop(false);
+      piece.setBottom(false);
     }
 
     void testRotate(Tester t) {
       init();
 
-      piece.left = true;
-      piece.right = false;
-      piece.top = false;
-      piece.bottom = false;
+      piece.setLeft(true);
+      piece.setRight(false);
+      piece.setTop(false);
+      piece.setBottom(false);
       piece.rotate(true);
 
-      t.checkExpect(piece.top, true);
-      t.checkExpect(piece.right, false);
-      t.checkExpect(piece.bottom, false);
-      t.checkExpect(piece.left, false);
+      t.checkExpect(piece.top(), true);
+      t.checkExpect(piece.right(), false);
+      t.checkExpect(piece.bottom(), false);
+      t.checkExpect(piece.left(), false);
 
       piece.rotate(true);
-      t.checkExpect(piece.top, false);
-      t.checkExpect(piece.right, true);
-      t.checkExpect(piece.bottom, false);
-      t.checkExpect(piece.left, false);
+      t.checkExpect(piece.top(), false);
+      t.checkExpect(piece.right(), true);
+      t.checkExpect(piece.bottom(), false);
+      t.checkExpect(piece.left(), false);
     }
 
     void testPowerUp(Tester t) {
       init();
-      t.checkExpect(piece.powered, false);
+      t.checkExpect(piece.powered(), false);
       piece.powerUp(1);
-      t.checkExpect(piece.powered, true);
+      t.checkExpect(piece.powered(), true);
     }
 
     void testCheckIfWithinPowerRadius(Tester t) {
@@ -1651,5 +1949,992 @@ class LightEmAll extends World {
       t.checkExpect(game.board.get(0).get(2).checkIfWithinPowerRadius(2, 2, 1), false);
     }
 
+    void testPowerEngineAfterRotation(Tester t) {
+      LightEmAll world = new LightEmAll(6, 6, 80, 10);
+      world.randomSeed = 42;
+      world.initBoard();
+      world.randomnizeTileRotation();
+      world.powerUpdate();
+
+      for (int i = 0; i < 36; i++) {
+        world.engine.turn(i);
+        world.syncView();
+        t.checkExpect(world.engine.power.distance,
+            distancesFrom(world.engine.bits, world.powerRow * 6 + world.powerCol));
+      }
+    }
+
+    /**
+     * Find the distance of every tile from the power station with a BFS over
+     * the whole board, to check the incremental power of the PowerEngine
+     * 
+     * @param bits    A board
+     * @param station Index of the power station
+     * @return index -> distance, -1 if not connected
+     */
+    int[] distancesFrom(BitBoard bits, int station) {
+      int[] distance = new int[bits.size()];
+      Arrays.fill(distance, -1);
+      int[] queue = new int[bits.size()];
+      int tail = 0;
+      queue[tail] = station;
+      tail++;
+      distance[station] = 0;
+      for (int head = 0; head < tail; head++) {
+        for (int direction = 0; direction < bits.directions; direction++) {
+          int next = bits.connectedNeighbor(queue[head], direction);
+          if (next >= 0 && distance[next] < 0) {
+            distance[next] = distance[queue[head]] + 1;
+            queue[tail] = next;
+            tail++;
+          }
+        }
+      }
+      return distance;
+    }
+
+    void testGenerationMatchesBaseline(Tester t) {
+      // The trees and radii the list and map makeLOE() made for these seeds
+      LightEmAllEngine engine = new LightEmAllEngine();
+      engine.generate(7, 4, 3);
+      t.checkExpect(engine.mstFrom, new int[] { 9, 8, 6, 5, 4, 10, 7, 6, 2, 3, 11 });
+      t.checkExpect(engine.mstTo, new int[] { 5, 4, 2, 4, 0, 6, 6, 5, 1, 2, 10 });
+      t.checkExpect(engine.mstWeight, new int[] { 0, 4, 7, 11, 12, 23, 24, 38, 49, 50, 79 });
+      t.checkExpect(engine.radius, 3);
+
+      engine.generate(42, 6, 5);
+      t.checkExpect(engine.mstFrom, new int[] { 7, 23, 19, 21, 14, 7, 25, 11, 8, 2, 18, 20, 13,
+          27, 28, 11, 29, 10, 22, 24, 15, 21, 10, 16, 9, 17, 28, 1, 3 });
+      t.checkExpect(engine.mstTo, new int[] { 1, 17, 18, 20, 8, 6, 24, 5, 7, 1, 12, 19, 7, 26,
+          27, 10, 28, 4, 21, 18, 14, 15, 9, 15, 8, 16, 22, 0, 2 });
+      t.checkExpect(engine.mstWeight, new int[] { 0, 0, 1, 1, 7, 9, 9, 12, 13, 18, 19, 19, 23,
+          23, 23, 27, 29, 30, 33, 42, 43, 53, 56, 56, 58, 59, 59, 70, 82 });
+      t.checkExpect(engine.radius, 6);
+    }
+
+    void testHexTileImage(Tester t) {
+      LightEmAll world = new LightEmAll(5, 5, 80, 10);
+      WorldImage wire = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP,
+          new RectangleImage(4, 20, OutlineMode.SOLID, Color.YELLOW), 0, -10,
+          new HexagonImage(40, OutlineMode.SOLID, RasterBoard.CLEAR));
+      WorldImage expected = new OverlayImage(new RotateImage(wire, 180),
+          new OverlayImage(new RotateImage(wire, 60),
+              new HexagonImage(40, OutlineMode.SOLID, Color.DARK_GRAY)));
+
+      // an image holds doubles, so it is compared with checkInexact
+      t.checkInexact(world.hexTileImage(40, 4, BitBoard.NORTHEAST | BitBoard.SOUTH,
+          Color.YELLOW, false), expected, 0.001);
+    }
+
+    void testTileSpriteCache(Tester t) {
+      LightEmAll world = new LightEmAll(5, 5, 80, 10);
+      world.initBoard();
+      GamePiece gp = world.board.get(1).get(1);
+      gp.setMask(BitBoard.LEFT);
+      gp.powerUp(3);
+
+      WorldImage first = gp.tileRenderer(80, 10, 0, 0, 3);
+      t.checkExpect(gp.tileRenderer(80, 10, 0, 0, 3) == first, true);
+      t.checkExpect(world.tileSprite(80, 10, BitBoard.LEFT, 3, false) == first, true);
+      t.checkExpect(world.tileSprite(80, 10, BitBoard.LEFT, 4, false) == first, false);
+      t.checkExpect(world.tileSprite(40, 10, BitBoard.LEFT, 3, false) == first, false);
+    }
+
+    void testSceneSizeStaysFlat(Tester t) {
+      LightEmAll world = new LightEmAll(8, 8, 80, 10);
+      world.randomSeed = 11;
+      world.initBoard();
+      world.randomnizeTileRotation();
+      world.onUIPage = false;
+      world.onTick();
+      String[] keys = { "up", "down", "left", "right" };
+      Random random = new Random(7);
+      int largest = 0;
+
+      for (int i = 0; i < 10000; i++) {
+        if (i % 4 == 0) {
+          world.onKeyReleased(keys[random.nextInt(4)]);
+        }
+        else {
+          world.onMouseReleased(new Posn(random.nextInt(640), random.nextInt(640)));
+        }
+        largest = Math.max(largest, world.placedImages);
+      }
+      t.checkExpect(largest <= 2 * 64, true);
+    }
+
+    void testIdleMenuKeepsScene(Tester t) {
+      LightEmAll world = new LightEmAll(5, 5, 80, 10);
+      world.onTick();
+      WorldScene shown = world.ws;
+      WorldImage page = world.startingPage;
+
+      for (int i = 0; i < 100; i++) {
+        world.onTick();
+      }
+      t.checkExpect(world.ws == shown, true);
+      t.checkExpect(world.startingPage == page, true);
+      t.checkExpect(world.placedImages, 1);
+    }
+
+    void testRotateGamePieceOnEdge(Tester t) {
+      LightEmAll world = new LightEmAll(4, 4, 80, 10);
+      world.randomSeed = 3;
+      world.initBoard();
+      int left = world.board.get(0).get(0).mask();
+      int right = world.board.get(0).get(1).mask();
+
+      world.rotateGamePiece(new Posn(80, 40));
+      t.checkExpect(world.board.get(0).get(0).mask(), left);
+      t.checkExpect(world.board.get(0).get(1).mask(), BitBoard.rotateSquare(right, true));
+
+      world.rotateGamePiece(new Posn(320, 40));
+      world.rotateGamePiece(new Posn(-1, 40));
+      t.checkExpect(world.board.get(0).get(0).mask(), left);
+      t.checkExpect(world.board.get(0).get(3).mask(), world.engine.bits.mask(3));
+    }
+
+    void testMovePowerStation(Tester t) {
+      LightEmAll world = new LightEmAll(6, 6, 80, 10);
+      world.randomSeed = 11;
+      world.initBoard();
+      // Stay on the board even when it is solved
+      world.engine.removeListener(world);
+      world.onUIPage = false;
+      world.powerUpdate();
+      String[] keys = { "up", "down", "left", "right" };
+      int[] directions = { LightEmAllEngine.TOP, LightEmAllEngine.BOTTOM, LightEmAllEngine.LEFT,
+          LightEmAllEngine.RIGHT };
+      Random random = new Random(5);
+
+      for (int i = 0; i < 200; i++) {
+        int key = random.nextInt(4);
+        int row = world.powerRow;
+        int col = world.powerCol;
+        boolean couldMove = world.engine.canMovePower(directions[key]);
+        world.onKeyReleased(keys[key]);
+        t.checkExpect(world.powerRow != row || world.powerCol != col, couldMove);
+        int stations = 0;
+        for (GamePiece gp : world.nodes) {
+          if (gp.powerStation()) {
+            stations++;
+          }
+        }
+        t.checkExpect(stations, 1);
+        t.checkExpect(world.board.get(world.powerRow).get(world.powerCol).powerStation(), true);
+      }
+    }
+
+    void testSolvedCounter(Tester t) {
+      LightEmAll world = new LightEmAll(1, 2, 80, 10);
+      world.initBoard();
+      int[] solved = new int[1];
+      world.engine.addListener(new PowerListener() {
+        public void onSolved() {
+          solved[0]++;
+        }
+      });
+      world.onUIPage = false;
+      world.powerUpdate();
+      t.checkExpect(world.engine.power.poweredCount, 2);
+      t.checkExpect(world.checkIfAllPowered(), true);
+      t.checkExpect(world.onMiddlePage, true);
+      t.checkExpect(solved[0], 1);
+
+      world.rotateGamePiece(new Posn(100, 40));
+      t.checkExpect(world.engine.power.poweredCount, 1);
+      t.checkExpect(world.checkIfAllPowered(), false);
+      for (int i = 0; i < 3; i++) {
+        world.rotateGamePiece(new Posn(100, 40));
+      }
+      t.checkExpect(world.checkIfAllPowered(), true);
+      t.checkExpect(solved[0], 2);
+    }
+
+    void testClickOnMiddlePage(Tester t) {
+      LightEmAll world = new LightEmAll(1, 2, 80, 10);
+      world.initBoard();
+      world.onUIPage = false;
+      world.powerUpdate();
+      t.checkExpect(world.onMiddlePage, true);
+      world.onTick();
+      int placed = world.placedImages;
+      int mask = world.engine.bits.mask(1);
+
+      world.onMouseReleased(new Posn(100, 40));
+      t.checkExpect(world.engine.bits.mask(1), mask);
+      t.checkExpect(world.engine.steps, 0);
+      t.checkExpect(world.checkIfAllPowered(), true);
+      t.checkExpect(world.placedImages, placed);
+      world.onTick();
+      t.checkExpect(world.onMiddlePage, true);
+      t.checkExpect(world.placedImages, placed);
+    }
+
+    void testInitHexBoard(Tester t) {
+      LightEmAll world = new LightEmAll(4, 6, 80, 10);
+      world.randomSeed = 9;
+      world.initHexBoard();
+      t.checkExpect(world.hexNodes.size(), 37);
+      t.checkExpect(world.hexBoard.get(3).size(), 18);
+      t.checkExpect(world.hexMst.size(), 36);
+
+      // every tile is wired exactly along the mst, and the mst joins them all
+      int[] wires = new int[37];
+      UnionFind uf = new UnionFind(37);
+      for (HexEdge edge : world.hexMst) {
+        int from = world.hexIndex(edge.from);
+        int to = world.hexIndex(edge.to);
+        uf.union(uf.find(from), uf.find(to));
+        for (int direction = 0; direction < 6; direction++) {
+          if (world.hexGrid.index(world.hexGrid.q[from] + HexGrid.DQ[direction],
+              world.hexGrid.r[from] + HexGrid.DR[direction]) == to) {
+            wires[from] |= 1 << direction;
+            wires[to] |= 1 << ((direction + 3) % 6);
+          }
+        }
+      }
+      for (int i = 0; i < 37; i++) {
+        t.checkExpect(world.hexNodes.get(i).mask(), wires[i]);
+        t.checkExpect(uf.find(i), uf.find(0));
+      }
+    }
+
+    void testHexNeighbors(Tester t) {
+      HexGrid grid = new HexGrid(5);
+      int edges = 0;
+      for (int i = 0; i < grid.size(); i++) {
+        for (int direction = 0; direction < 6; direction++) {
+          int next = grid.neighbor(i, direction);
+          if (next >= 0) {
+            edges++;
+            t.checkExpect(grid.neighbor(next, HexGrid.OPPOSITE[direction]), i);
+            t.checkExpect(grid.directionTo(i, next), direction);
+          }
+        }
+      }
+      // 3 * (rings - 1) * (3 * rings - 2) edges between 61 tiles, seen from both ends
+      t.checkExpect(edges, 2 * 3 * 4 * 13);
+      t.checkExpect(grid.neighbor(0, 0), 1);
+      t.checkExpect(grid.neighbor(1, 0), 7);
+      t.checkExpect(grid.neighbor(1, 3), 0);
+    }
+
+    void testHexTileAt(Tester t) {
+      HexGrid grid = new HexGrid(4);
+      t.checkExpect(grid.size(), 37);
+      t.checkExpect(grid.tileAt(0, 0, 10), 0);
+      for (int i = 0; i < grid.size(); i++) {
+        t.checkExpect(grid.index(grid.q[i], grid.r[i]), i);
+        t.checkExpect(grid.tileAt(grid.centerX(i, 10) + 3, grid.centerY(i, 10) - 4, 10), i);
+      }
+      // north of the center, then the first tile of the second ring
+      t.checkExpect(grid.tileAt(0, -17.3, 10), 1);
+      t.checkExpect(grid.tileAt(0, -34.6, 10), 7);
+      t.checkExpect(grid.tileAt(0, -80, 10), -1);
+    }
+
+    void testSolver(Tester t) {
+      // a wire across a 1x3 board, each tile a turn away
+      BitBoard bits = new BitBoard(3, 1);
+      bits.setMask(0, BitBoard.TOP);
+      bits.setMask(1, BitBoard.TOP | BitBoard.BOTTOM);
+      bits.setMask(2, BitBoard.BOTTOM);
+      Solver solver = new Solver(bits, 1);
+      t.checkExpect(solver.solve(), true);
+      t.checkExpect(solver.optimal, true);
+      t.checkExpect(solver.clicks, 3);
+      t.checkExpect(solver.sequence(), new int[] { 0, 1, 2 });
+      t.checkExpect(solver.withinRadius(), true);
+
+      // three dead ends can't be wired into one tree
+      bits.setMask(1, BitBoard.TOP);
+      t.checkExpect(new Solver(bits, 1).solve(), false);
+
+      LightEmAllEngine engine = new LightEmAllEngine();
+      engine.newGame(7, 8, 6);
+      solver = engine.solve();
+      t.checkExpect(solver.withinRadius(), true);
+      for (int index : solver.sequence()) {
+        engine.turn(index);
+      }
+      for (int i = 0; i < 48; i++) {
+        t.checkExpect(engine.power.distance[i] >= 0, true);
+      }
+    }
+
+    void testBoardPool(Tester t) {
+      BoardPool pool = new BoardPool(2);
+      ArrayList<ReadyBoard> boards = pool.generate(false, 5, 4, new int[] { 3, 8 });
+      ArrayList<ReadyBoard> hexBoards = pool.generate(true, 5, 4, new int[] { 3 });
+      t.checkExpect(boards.size(), 2);
+      t.checkExpect(boards.get(1).seed, 8);
+
+      // a board made ahead of time is the game the seed starts on demand
+      LightEmAll world = new LightEmAll(4, 5, 80, 10);
+      world.randomSeed = 3;
+      world.initBoard();
+      world.randomnizeTileRotation();
+      LightEmAll loaded = new LightEmAll(4, 5, 80, 10);
+      loaded.loadBoard(boards.get(0));
+      t.checkExpect(loaded.radius, world.radius);
+      t.checkExpect(loaded.mst.size(), world.mst.size());
+      for (int i = 0; i < 20; i++) {
+        t.checkExpect(loaded.nodes.get(i).mask(), world.nodes.get(i).mask());
+      }
+
+      world.randomSeed = 3;
+      world.initHexBoard();
+      world.randomnizeHexTileRotation();
+      loaded.loadHexBoard(hexBoards.get(0));
+      t.checkExpect(loaded.radius, world.radius);
+      for (int i = 0; i < world.hexNodes.size(); i++) {
+        t.checkExpect(loaded.hexNodes.get(i).mask(), world.hexNodes.get(i).mask());
+      }
+
+      // nothing is ready before the first ask, which starts the refill
+      t.checkExpect(pool.poll(false, 6, 6), null);
+      pool.shutdown();
+    }
+
+    void testPuzzlePack(Tester t) throws IOException {
+      BoardPool pool = new BoardPool(2);
+      ArrayList<ReadyBoard> boards = pool.generate(false, 5, 4, new int[] { 3, 8, 11 });
+      ArrayList<ReadyBoard> hexBoards = pool.generate(true, 5, 4, new int[] { 3, 7 });
+      pool.shutdown();
+      Path file = Files.createTempFile("lightemall", ".pack");
+      Path hexFile = Files.createTempFile("lightemall", ".pack");
+      try {
+        PuzzlePack.write(file, new ArrayList<ReadyBoard>(boards.subList(0, 2)));
+        PuzzlePack.append(file, new ArrayList<ReadyBoard>(boards.subList(2, 3)));
+        PuzzlePack.write(hexFile, hexBoards);
+        PuzzlePack pack = new PuzzlePack(file);
+        PuzzlePack hexPack = new PuzzlePack(hexFile);
+
+        // 20 tiles: 8 bytes of seed and radius, 10 of wiring, 5 of turns;
+        // 37 hexagons: a byte of wiring each, a nibble of turns
+        t.checkExpect(pack.recordSize, 23);
+        t.checkExpect(Files.size(file), (long) PuzzlePack.HEADER_SIZE + 3 * 23);
+        t.checkExpect(pack.count, 3);
+        t.checkExpect(hexPack.hex, true);
+        t.checkExpect(hexPack.count, 2);
+        t.checkExpect(hexPack.recordSize, 8 + 37 + 19);
+
+        // the Nth board reads back as generated
+        for (int n = 0; n < 3; n++) {
+          ReadyBoard board = pack.board(n);
+          t.checkExpect(board.seed, boards.get(n).seed);
+          t.checkExpect(board.radius, boards.get(n).radius);
+          t.checkExpect(board.mstSize, boards.get(n).mstSize);
+          t.checkExpect(board.solvedWiring(), boards.get(n).solvedWiring());
+          for (int i = 0; i < 20; i++) {
+            t.checkExpect(pack.mask(n, i), boards.get(n).bits.mask(i));
+            t.checkExpect(board.bits.mask(i), boards.get(n).bits.mask(i));
+          }
+        }
+        ReadyBoard hexBoard = hexPack.board(1);
+        t.checkExpect(hexBoard.solvedWiring(), hexBoards.get(1).solvedWiring());
+        for (int i = 0; i < hexBoard.bits.size(); i++) {
+          t.checkExpect(hexBoard.bits.mask(i), hexBoards.get(1).bits.mask(i));
+        }
+
+        // a board of the pack plays like the one generated from its seed
+        LightEmAll world = new LightEmAll(4, 5, 80, 10);
+        world.loadBoard(pack.board(1));
+        t.checkExpect(world.radius, boards.get(1).radius);
+        t.checkExpect(world.mst.size(), 19);
+        world.loadHexBoard(hexBoard);
+        t.checkExpect(world.radius, hexBoards.get(1).radius);
+
+        // a pack without boards is read, and boards can be added to it
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[PuzzlePack.HEADER_SIZE - 1] = 0;
+        Files.write(hexFile, Arrays.copyOf(bytes, PuzzlePack.HEADER_SIZE));
+        t.checkExpect(new PuzzlePack(hexFile).count, 0);
+        PuzzlePack.append(hexFile, boards);
+        t.checkExpect(new PuzzlePack(hexFile).count, 3);
+        t.checkExpect(new PuzzlePack(hexFile).board(2).seed, boards.get(2).seed);
+
+        // a header of no mode or with fewer than no boards isn't read
+        bytes = Files.readAllBytes(file);
+        bytes[PuzzlePack.HEADER_SIZE - 4] = (byte) 0x80;
+        Files.write(hexFile, bytes);
+        t.checkExpect(openError(hexFile), "Bad puzzle pack header: " + hexFile);
+        bytes = Files.readAllBytes(file);
+        bytes[6] = 2;
+        Files.write(hexFile, bytes);
+        t.checkExpect(openError(hexFile), "Bad puzzle pack header: " + hexFile);
+
+        // a record wired off the board isn't read as a board
+        bytes = Files.readAllBytes(file);
+        bytes[PuzzlePack.HEADER_SIZE + 8] ^= BitBoard.TOP;
+        Files.write(hexFile, bytes);
+        String error = "";
+        try {
+          new PuzzlePack(hexFile).board(0);
+        }
+        catch (IllegalArgumentException e) {
+          error = e.getMessage();
+        }
+        t.checkExpect(error, "Tile 0 of board " + boards.get(0).seed + " is wired to no tile");
+
+        // a tile that isn't a turn of its solution isn't written, and the pack
+        // the file held is kept
+        boards.get(0).bits.setMask(0, boards.get(0).bits.mask(0) ^ BitBoard.TOP);
+        error = "";
+        try {
+          PuzzlePack.write(file, boards);
+        }
+        catch (IllegalArgumentException e) {
+          error = e.getMessage();
+        }
+        t.checkExpect(new PuzzlePack(file).count, 3);
+        t.checkExpect(error,
+            "Tile 0 of board " + boards.get(0).seed + " isn't a turn of its solution");
+      }
+      finally {
+        Files.delete(file);
+        Files.delete(hexFile);
+      }
+    }
+
+    /**
+     * Open a puzzle pack that isn't one
+     * 
+     * @param file A file
+     * @return The message of the IOException, "" if there was none
+     */
+    String openError(Path file) {
+      try {
+        new PuzzlePack(file);
+      }
+      catch (IOException e) {
+        return e.getMessage();
+      }
+      return "";
+    }
+
+    void testScoreStore(Tester t) throws IOException {
+      TopScores top = new TopScores(3);
+      t.checkExpect(top.add(5), true);
+      t.checkExpect(top.add(9), true);
+      t.checkExpect(top.add(1), true);
+      t.checkExpect(top.add(0), false);
+      t.checkExpect(top.add(7), true);
+      t.checkExpect(top.max, 9);
+      t.checkExpect(top.sorted(), new int[] { 9, 7, 5 });
+
+      Path file = Files.createTempFile("lightemall", ".scores");
+      Files.delete(file);
+      // the header and four scores
+      long size = ScoreStore.HEADER_SIZE + 4 * ScoreStore.RECORD_SIZE;
+      try {
+        ScoreStore store = new ScoreStore(file, 2);
+        t.checkExpect(store.best(), 0);
+        store.add(false, 15, 10, 120);
+        store.add(false, 15, 10, 80);
+        store.add(true, 15, 10, 140);
+        store.add(false, 15, 10, 60);
+        store.add(false, 15, 10, 100);
+        t.checkExpect(store.best(), 140);
+        t.checkExpect(store.best(false, 15, 10), 120);
+        t.checkExpect(store.top(false, 15, 10), new int[] { 120, 100 });
+        t.checkExpect(store.top(false, 5, 5), new int[0]);
+        // 60 was beaten before it was written
+        t.checkExpect(Files.size(file), size);
+
+        // read back the first time a score is needed
+        ScoreStore again = new ScoreStore(file, 2);
+        t.checkExpect(again.loaded, false);
+        t.checkExpect(again.top(false, 15, 10), new int[] { 120, 100 });
+        t.checkExpect(again.best(true, 15, 10), 140);
+
+        // the file is rewritten once it holds COMPACT_AFTER scores nobody keeps
+        for (int i = 0; i < ScoreStore.COMPACT_AFTER; i++) {
+          again.add(true, 15, 10, 200 + i);
+        }
+        t.checkExpect(Files.size(file), size);
+        t.checkExpect(new ScoreStore(file, 2).top(true, 15, 10),
+            new int[] { 200 + ScoreStore.COMPACT_AFTER - 1, 200 + ScoreStore.COMPACT_AFTER - 2 });
+
+        // a record cut short is dropped
+        Files.write(file, new byte[] { 1, 0, 0 }, java.nio.file.StandardOpenOption.APPEND);
+        ScoreStore cut = new ScoreStore(file, 2);
+        t.checkExpect(cut.best(), 200 + ScoreStore.COMPACT_AFTER - 1);
+        t.checkExpect(Files.size(file), size);
+
+        // a file of records written before the header is read and given one
+        byte[] records = Arrays.copyOfRange(Files.readAllBytes(file), ScoreStore.HEADER_SIZE,
+            (int) size);
+        Files.write(file, records);
+        t.checkExpect(new ScoreStore(file, 2).top(false, 15, 10), new int[] { 120, 100 });
+        t.checkExpect(Files.size(file), size);
+
+        // the keys are the store's own
+        t.checkExpect(ScoreStore.key(true, 15, 10), "hex 15 10");
+        t.checkExpect(ScoreStore.key(false, 15, 10), "square 15 10");
+      }
+      finally {
+        Files.deleteIfExists(file);
+      }
+
+      LightEmAll world = new LightEmAll(4, 5, 80, 10);
+      t.checkExpect(world.getHighestScore(), 0);
+      world.randomSeed = 3;
+      world.initGame(false);
+      world.resetGame();
+      t.checkExpect(world.getHighestScore(), world.scores.best(false, 5, 4));
+      t.checkExpect(world.scores.top(false, 5, 4).length, 1);
+    }
+
+    void testMoveLog(Tester t) throws IOException {
+      MoveLog log = new MoveLog(false, 7, 100, 100);
+      log.rotate(5);
+      log.rotate(9999);
+      log.movePower(LightEmAllEngine.RIGHT);
+      // 20 = one byte, 39996 = three bytes, 5 = one byte
+      t.checkExpect(log.length, 5);
+      t.checkExpect(log.moves, 3);
+
+      Path directory = Files.createTempDirectory("lightemall");
+      LightEmAll world = new LightEmAll(6, 7, 80, 10);
+      world.moveLogDirectory = directory;
+      try {
+        world.initGame(false);
+        // the file is made by the first move
+        t.checkExpect(directory.toFile().list().length, 0);
+        world.flushMoveLog();
+        t.checkExpect(directory.toFile().list().length, 0);
+        Random random = new Random(4);
+        String[] keys = { "w", "d", "s", "a" };
+        for (int i = 0; i < 300; i++) {
+          if (random.nextInt(4) == 0) {
+            world.onKeyReleased(keys[random.nextInt(4)]);
+          }
+          else {
+            world.onMouseReleased(new Posn(random.nextInt(7 * 80), random.nextInt(6 * 80)));
+          }
+        }
+        t.checkExpect(world.moveLog.moves, 300);
+        t.checkExpect(directory.toFile().list().length, 1);
+        world.flushMoveLog();
+
+        // the game played again from the file ends on the same board
+        MoveLog read = MoveLog.read(world.moveLog.file);
+        t.checkExpect(read.seed, world.randomSeed);
+        t.checkExpect(read.moves, 300);
+        Replay replay = new Replay(read);
+        replay.fastForward(300);
+        t.checkExpect(replay.station, world.engine.powerRow * 7 + world.engine.powerCol);
+        t.checkExpect(replay.bits.wiring, world.engine.bits.wiring);
+        t.checkExpect(replay.bits.levels, world.engine.bits.levels);
+
+        // stepping keeps the power up to date, and going back starts over
+        replay.fastForward(100);
+        Replay stepped = new Replay(read);
+        for (int i = 0; i < 100; i++) {
+          t.checkExpect(stepped.step(), true);
+        }
+        t.checkExpect(stepped.bits.levels, replay.bits.levels);
+        stepped.fastForward(300);
+        t.checkExpect(stepped.step(), false);
+        t.checkExpect(stepped.bits.levels, world.engine.bits.levels);
+
+        world.resetGame();
+        world.initGame(true);
+        for (int i = 0; i < 200; i++) {
+          if (random.nextInt(4) == 0) {
+            world.moveHexPowerStation(random.nextInt(6));
+          }
+          else {
+            int index = random.nextInt(world.hexNodes.size());
+            world.rotateHexGamePiece(new Posn(
+                (int) (7 * 80 / 2.0 + world.hexGrid.centerX(index, world.hexSize)),
+                (int) (6 * 80 / 2.0 + world.hexGrid.centerY(index, world.hexSize))));
+          }
+        }
+        t.checkExpect(world.moveLog.moves, 200);
+        Replay hexReplay = new Replay(world.moveLog);
+        hexReplay.fastForward(200);
+        t.checkExpect(hexReplay.station, world.engine.station());
+        t.checkExpect(hexReplay.bits.wiring, world.engine.bits.wiring);
+        t.checkExpect(hexReplay.bits.levels, world.engine.bits.levels);
+      }
+      finally {
+        world.flushMoveLog();
+        java.io.File[] files = directory.toFile().listFiles();
+        for (int i = 0; i < files.length; i++) {
+          files[i].delete();
+        }
+        Files.delete(directory);
+      }
+    }
+
+    void testUndoRedo(Tester t) {
+      LightEmAll world = new LightEmAll(6, 7, 80, 10);
+      world.randomSeed = 5;
+      world.initBoard();
+      world.randomnizeTileRotation();
+      world.onUIPage = false;
+      world.startMoveLog();
+      world.powerUpdate();
+      ArrayList<byte[]> wiring = new ArrayList<byte[]>();
+      ArrayList<byte[]> levels = new ArrayList<byte[]>();
+      ArrayList<Integer> stations = new ArrayList<Integer>();
+      Random random = new Random(2);
+      // TOP, RIGHT, BOTTOM, LEFT
+      String[] keys = { "w", "d", "s", "a" };
+      int moves = 0;
+      for (int i = 0; i <= 60; i++) {
+        int direction = -1;
+        for (int d = 0; d < 4; d++) {
+          if (world.engine.canMovePower(d)) {
+            direction = d;
+          }
+        }
+        if (i > 0 && direction >= 0 && random.nextInt(2) == 0) {
+          world.onKeyReleased(keys[direction]);
+          moves++;
+        }
+        else if (i > 0) {
+          world.onMouseReleased(new Posn(random.nextInt(7 * 80), random.nextInt(6 * 80)));
+        }
+        wiring.add(world.engine.bits.wiring.clone());
+        levels.add(world.engine.bits.levels.clone());
+        stations.add(world.powerRow * 7 + world.powerCol);
+      }
+
+      // back to the start one move at a time, the pieces following the board
+      for (int i = 59; i >= 0; i--) {
+        world.onKeyReleased("z");
+        t.checkExpect(world.engine.bits.wiring, wiring.get(i));
+        t.checkExpect(world.engine.bits.levels, levels.get(i));
+        t.checkExpect(world.powerRow * 7 + world.powerCol, stations.get(i));
+        t.checkExpect(world.nodes.get(stations.get(i)).powerStation(), true);
+      }
+      t.checkExpect(moves > 0, true);
+      t.checkExpect(world.undoStack.canUndo(), false);
+      world.onKeyReleased("z");
+      t.checkExpect(world.engine.bits.wiring, wiring.get(0));
+
+      for (int i = 1; i <= 30; i++) {
+        world.onKeyReleased("y");
+        t.checkExpect(world.engine.bits.wiring, wiring.get(i));
+        t.checkExpect(world.engine.bits.levels, levels.get(i));
+        t.checkExpect(world.powerRow * 7 + world.powerCol, stations.get(i));
+      }
+      for (int i = 0; i < world.nodes.size(); i++) {
+        t.checkExpect(world.nodes.get(i).mask(), world.engine.bits.mask(i));
+      }
+      // the same power as a full recompute
+      world.engine.power.recompute(stations.get(30));
+      t.checkExpect(world.engine.bits.levels, levels.get(30));
+
+      // a new move drops the moves that could be redone
+      world.rotateGamePiece(new Posn(10, 10));
+      t.checkExpect(world.undoStack.canRedo(), false);
+      t.checkExpect(world.undoStack.size, 31);
+
+      // the log plays the undos and redos back
+      Replay replay = new Replay(world.moveLog);
+      replay.fastForward(world.moveLog.moves);
+      t.checkExpect(replay.bits.wiring, world.engine.bits.wiring);
+      t.checkExpect(replay.bits.levels, world.engine.bits.levels);
+      t.checkExpect(replay.station, world.powerRow * 7 + world.powerCol);
+
+      world.initGame(true);
+      world.hexPowerUpdate();
+      byte[] start = world.engine.bits.wiring.clone();
+      byte[] startLevels = world.engine.bits.levels.clone();
+      world.rotateHexGamePiece(new Posn(7 * 40, 6 * 40));
+      world.rotateHexGamePiece(new Posn(7 * 40, 6 * 40));
+      world.onKeyReleased("z");
+      world.onKeyReleased("z");
+      t.checkExpect(world.engine.bits.wiring, start);
+      t.checkExpect(world.engine.bits.levels, startLevels);
+      t.checkExpect(world.hexNodes.get(0).mask(), (int) start[0]);
+      world.onKeyReleased("y");
+      t.checkExpect(world.engine.bits.mask(0), BitBoard.rotateHex(start[0], true));
+    }
+
+    void testViewport(Tester t) {
+      LightEmAll world = new LightEmAll(100, 100, 80, 10);
+      world.useViewport(400, 320);
+      world.initGame(false);
+      world.powerUpdate();
+      world.drawBoard();
+      // 5 x 4 tiles in view and the tile after them
+      t.checkExpect(world.placedImages, 6 * 5);
+      t.checkExpect(world.sceneWidth(), 400);
+
+      // a changed tile out of view isn't placed
+      world.markDirty(50 * 100 + 50);
+      world.drawBoard();
+      t.checkExpect(world.placedImages, 30);
+      WorldScene scene = world.ws;
+      world.rotateGamePiece(new Posn(90, 10));
+      int changedInView = 0;
+      for (int i = 0; i < world.dirtyCount; i++) {
+        if (world.dirtyTiles[i] / 100 <= 4 && world.dirtyTiles[i] % 100 <= 5) {
+          changedInView++;
+        }
+      }
+      world.drawBoard();
+      t.checkExpect(changedInView > 0, true);
+      // the changed tiles go on the same scene
+      t.checkExpect(world.ws == scene, true);
+      t.checkExpect(world.placedImages, 30 + changedInView);
+
+      // clicks go through the view
+      world.scrollView(2, 1);
+      t.checkExpect(world.viewX, 160);
+      t.checkExpect(world.viewY, 80);
+      int before = world.engine.bits.mask(1 * 100 + 3);
+      world.rotateGamePiece(new Posn(90, 10));
+      t.checkExpect(world.engine.bits.mask(1 * 100 + 3), BitBoard.rotateSquare(before, true));
+      world.drawBoard();
+      // a moved view starts a new scene, so the old tiles don't pile up
+      t.checkExpect(world.ws == scene, false);
+      // one tile before the view as well
+      t.checkExpect(world.placedImages, 7 * 6);
+
+      // zoomed out around the middle of the view, the view stays on the board
+      world.scrollView(20, 20);
+      world.zoomView(false);
+      t.checkExpect(world.viewTileSize, 40);
+      // the middle was 24.5 and 23 tiles in
+      t.checkExpect(world.viewX, 980 - 200);
+      t.checkExpect(world.viewY, 920 - 160);
+      world.scrollView(-1000, 1000);
+      t.checkExpect(world.viewX, 0);
+      t.checkExpect(world.viewY, 100 * 40 - 320);
+      for (int i = 0; i < 10; i++) {
+        world.zoomView(false);
+      }
+      t.checkExpect(world.viewTileSize, LightEmAll.MIN_VIEW_TILE_SIZE);
+      world.drawBoard();
+      // the frame depends on the view, not on the board
+      t.checkExpect(world.placedImages <= (400 / 5 + 3) * (320 / 5 + 3), true);
+
+      // the view follows the power station
+      world.zoomView(true);
+      world.zoomView(true);
+      world.zoomView(true);
+      world.zoomView(true);
+      world.engine.placePowerStation(0, 0);
+      world.keepPowerStation(0);
+      t.checkExpect(world.viewX, 0);
+      t.checkExpect(world.viewY, 0);
+
+      // a board smaller than the view is centered in it
+      LightEmAll small = new LightEmAll(2, 3, 80, 10);
+      small.useViewport(400, 320);
+      small.initGame(false);
+      t.checkExpect(small.viewX, -80);
+      t.checkExpect(small.viewY, -80);
+      int corner = small.engine.bits.mask(0);
+      small.rotateGamePiece(new Posn(81, 81));
+      t.checkExpect(small.engine.bits.mask(0), BitBoard.rotateSquare(corner, true));
+    }
+
+    void testLevelOfDetail(Tester t) {
+      LightEmAll world = new LightEmAll(300, 300, 80, 10);
+      world.useViewport(400, 320);
+      world.initGame(false);
+      world.powerUpdate();
+      for (int i = 0; i < 4; i++) {
+        world.zoomView(false);
+      }
+      t.checkExpect(world.viewTileSize, 5);
+      world.drawBoard();
+      // the whole view is one image
+      t.checkExpect(world.placedImages, 1);
+      t.checkExpect(world.lodImage == null, false);
+      t.checkExpect(world.blockColor(world.powerRow, world.powerCol),
+          RasterBoard.STATION_COLOR);
+      t.checkExpect(world.blockColor(299, 299), RasterBoard.WIRE_COLORS[world.engine.bits
+          .level(299 * 300 + 299)]);
+      t.checkExpect(blocksShowBoard(world), true);
+
+      // a click paints the changed tiles on the same image
+      ComputedPixelImage image = world.lodImage;
+      world.rotateGamePiece(new Posn(7, 7));
+      world.drawBoard();
+      t.checkExpect(world.lodImage == image, true);
+      t.checkExpect(world.placedImages, 1);
+      t.checkExpect(world.dirtyCount, 0);
+      t.checkExpect(blocksShowBoard(world), true);
+
+      // at 1 pixel the frame still depends on the view only
+      world.zoomView(false);
+      world.zoomView(false);
+      world.zoomView(false);
+      t.checkExpect(world.viewTileSize, 1);
+      world.drawBoard();
+      t.checkExpect(world.placedImages, 1);
+      t.checkExpect(world.lodImage == image, true);
+
+      // zoomed back in, the tiles are sprites again
+      world.zoomView(true);
+      world.zoomView(true);
+      world.zoomView(true);
+      world.zoomView(true);
+      t.checkExpect(world.viewTileSize, 16);
+      world.drawBoard();
+      t.checkExpect(world.placedImages > 1, true);
+
+      // the size tiles turn to blocks at can be set
+      world.lodTileSize = 32;
+      world.scrollView(1, 0);
+      world.drawBoard();
+      t.checkExpect(world.placedImages, 1);
+    }
+
+    /**
+     * Check the pixels of the blocks of a zoomed out view: the corner of every
+     * tile in view in the color of its power level, or of the power station
+     * 
+     * @param world A board drawn as blocks
+     * @return A boolean
+     */
+    boolean blocksShowBoard(LightEmAll world) {
+      int size = world.viewTileSize;
+      for (int row = 0; row < world.height; row++) {
+        for (int col = 0; col < world.width; col++) {
+          int x = col * size - world.viewX;
+          int y = row * size - world.viewY;
+          if (x >= 0 && y >= 0 && x < world.viewWidth && y < world.viewHeight) {
+            Color color = RasterBoard.WIRE_COLORS[world.engine.bits.level(row * world.width
+                + col)];
+            if (row == world.powerRow && col == world.powerCol) {
+              color = RasterBoard.STATION_COLOR;
+            }
+            if (!world.lodImage.getColorAt(x, y).equals(color)) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    void testRasterBackend(Tester t) {
+      LightEmAll world = new LightEmAll(10, 10, 20, 4);
+      world.initGame(false);
+      world.powerUpdate();
+      world.rasterBackend = true;
+      world.drawBoard();
+      // the whole board is one image
+      t.checkExpect(world.placedImages, 1);
+      t.checkExpect(world.raster.width, 200);
+      t.checkExpect(world.raster.height, 200);
+      t.checkExpect(rasterShowsBoard(world), true);
+
+      // a sprite is the tile, the middle and a rectangle per wire
+      int[] sprite = world.raster.sprite(3, BitBoard.TOP | BitBoard.LEFT);
+      t.checkExpect(sprite.length, 4 * 5);
+      t.checkExpect(new int[] { sprite[0], sprite[1], sprite[2], sprite[3], sprite[4] },
+          new int[] { 0, 0, 20, 20, RasterBoard.TILE });
+      t.checkExpect(new int[] { sprite[10], sprite[11], sprite[12], sprite[13], sprite[14] },
+          new int[] { 8, 0, 4, 10, 4 });
+      t.checkExpect(world.raster.sprite(3, BitBoard.TOP | BitBoard.LEFT) == sprite, true);
+      // the power station has its star on top
+      t.checkExpect(world.raster.sprite(6, BitBoard.TOP).length > 3 * 5, true);
+
+      // a click copies the changed tiles into the same image
+      ComputedPixelImage image = world.raster.image;
+      world.rotateGamePiece(new Posn(50, 50));
+      world.drawBoard();
+      t.checkExpect(world.placedImages, 1);
+      t.checkExpect(world.raster.image == image, true);
+      t.checkExpect(world.dirtyCount, 0);
+      t.checkExpect(rasterShowsBoard(world), true);
+
+      // back to an image per tile
+      world.onKeyReleased("b");
+      t.checkExpect(world.rasterBackend, false);
+      t.checkExpect(world.placedImages, 100);
+
+      // through a viewport the view is one image as well
+      LightEmAll large = new LightEmAll(100, 100, 80, 10);
+      large.useViewport(400, 320);
+      large.initGame(false);
+      large.powerUpdate();
+      large.rasterBackend = true;
+      large.drawBoard();
+      t.checkExpect(large.placedImages, 1);
+      t.checkExpect(large.raster.width, 400);
+      large.scrollView(3, 3);
+      large.drawBoard();
+      t.checkExpect(large.placedImages, 1);
+      t.checkExpect(large.raster.size, 80);
+    }
+
+    /**
+     * Check the pixels of the raster of a board drawn whole: the corner of
+     * every tile in the tile color, its middle in the color of its wire or of
+     * the star of the power station
+     * 
+     * @param world A board drawn with the raster backend
+     * @return A boolean
+     */
+    boolean rasterShowsBoard(LightEmAll world) {
+      int size = world.raster.size;
+      for (int row = 0; row < world.height; row++) {
+        for (int col = 0; col < world.width; col++) {
+          Color middle = RasterBoard.WIRE_COLORS[world.engine.bits.level(row * world.width
+              + col)];
+          if (row == world.powerRow && col == world.powerCol) {
+            middle = RasterBoard.STATION_COLOR;
+          }
+          if (!world.raster.image.getColorAt(col * size, row * size).equals(Color.DARK_GRAY)
+              || !world.raster.image.getColorAt(col * size + size / 2, row * size + size / 2)
+                  .equals(middle)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    void testHexPowerAfterRotation(Tester t) {
+      LightEmAll world = new LightEmAll(5, 8, 80, 10);
+      world.randomSeed = 4;
+      world.initHexBoard();
+      world.engine.removeListener(world);
+
+      // right after generation every tile is connected, in range or not
+      world.hexPowerUpdate();
+      int inRange = 0;
+      for (int i = 0; i < 61; i++) {
+        t.checkExpect(world.engine.power.distance[i] >= 0, true);
+        if (world.engine.power.distance[i] <= world.engine.radius) {
+          inRange++;
+        }
+      }
+      t.checkExpect(world.engine.power.poweredCount, inRange);
+      t.checkExpect(world.hexNodes.get(0).powerLevel(), 5);
+
+      world.randomnizeHexTileRotation();
+      world.hexPowerUpdate();
+      for (int i = 0; i < 61; i++) {
+        HexGamePiece hex = world.hexNodes.get(i);
+        world.rotateHexGamePiece(new Posn(
+            (int) (world.width * world.tileSize / 2.0 + world.hexGrid.centerX(i, world.hexSize)),
+            (int) (world.height * world.tileSize / 2.0
+                + world.hexGrid.centerY(i, world.hexSize))));
+        t.checkExpect(world.engine.power.distance,
+            distancesFrom(world.engine.bits, world.engine.station()));
+        for (int j = 0; j < 61; j++) {
+          HexGamePiece other = world.hexNodes.get(j);
+          t.checkExpect(other.powerLevel(),
+              world.engine.power.levelFor(world.engine.power.distance[j]));
+        }
+        t.checkExpect(hex.mask(), world.engine.bits.mask(i));
+      }
+      world.moveHexPowerStation(0);
+      t.checkExpect(world.engine.power.distance,
+          distancesFrom(world.engine.bits, world.engine.station()));
+    }
   }
 }